@@ -0,0 +1,62 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebFlux on Netty instead of Servlet MVC on Tomcat, turned on with the {@code reactive} profile. The controllers of
+ * the profile run the same {@link pl.hycom.service.GamesHolder} as the servlet ones.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    @Value("${app.reactive.engine-threads:0}")
+    private int engineThreads;
+
+    /**
+     * Tomcat of the servlet stack is on the class path as well and would be picked before Netty.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Threads the game engine runs on, moves wait for the game lock and may write the journal or a shared repository,
+     * so they stay off the event loop. 0 means one thread per core.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler gameEngineScheduler() {
+        return Schedulers.newParallel("game-engine", engineThreads > 0 ? engineThreads : Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameNotFoundException;
+import pl.hycom.model.MoveDTO;
+import pl.hycom.model.MoveResultDTO;
+import pl.hycom.service.GameEvents;
+import pl.hycom.service.GameIds;
+import pl.hycom.service.GamesHolder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * {@link GameApiController} for the {@code reactive} profile. An event stream takes no thread while it's idle, events
+ * are sent only as fast as the client reads them and the rest wait in the bounded queue of {@link GameEvents}.
+ */
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/games")
+public class ReactiveGameApiController {
+
+    @Value("${app.api.batch-limit:4096}")
+    private int batchLimit = 4096;
+
+    @Autowired
+    private GamesHolder gamesHolder;
+
+    @Autowired
+    private GameEvents gameEvents;
+
+    @Autowired
+    private Scheduler gameEngineScheduler;
+
+    @PostMapping(value = "/{gameId}/moves")
+    public Mono<MoveResultDTO> move(@PathVariable final String gameId, @RequestBody final MoveDTO move) {
+        return moves(gameId, new int[] { move.getRow(), move.getColumn() });
+    }
+
+    @PostMapping(value = "/{gameId}/moves/batch")
+    public Mono<MoveResultDTO> moves(@PathVariable final String gameId, @RequestBody final int[] moves) {
+        if (moves.length > batchLimit * 2) {
+            return Mono.error(new ActionException("Batch of " + moves.length / 2 + " moves is over the limit of " + batchLimit));
+        }
+
+        return Mono.fromCallable(() -> {
+            GamesHolder.Batch batch = gamesHolder.moves(gameId, moves);
+            if (batch.getFailure() != null && log.isInfoEnabled()) {
+                log.info("User clicked the bomb or action was not valid!");
+            }
+
+            return MoveResultDTO.from(batch.getBoard(), batch.getRevealed(), batch.getApplied());
+        }).subscribeOn(gameEngineScheduler);
+    }
+
+    @GetMapping(value = "/{gameId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> events(@PathVariable final String gameId) {
+        return Mono.fromCallable(() -> {
+            gamesHolder.getGame(gameId);
+            return GameIds.parse(gameId);
+        }).subscribeOn(gameEngineScheduler).flatMapMany(id -> Flux.create(sink -> {
+            GameEvents.Subscription subscription = gameEvents.subscribe(id, new FluxEventSink(sink));
+            sink.onRequest(requested -> subscription.resume());
+            sink.onDispose(subscription::cancel);
+        }, FluxSink.OverflowStrategy.BUFFER));
+    }
+
+    @ExceptionHandler(ActionException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public void handleActionException() {
+        if (log.isInfoEnabled()) {
+            log.info("Moves were not valid!");
+        }
+    }
+
+    @ExceptionHandler(GameNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public void handleGameNotFoundException() {
+        if (log.isWarnEnabled()) {
+            log.warn("Game not found!");
+        }
+    }
+
+    /**
+     * Ready only while the client asked for more, so nothing piles up in the buffer of the flux - only the last event
+     * of a stream may be sent without demand.
+     */
+    private static final class FluxEventSink implements GameEvents.EventSink {
+
+        private final FluxSink<ServerSentEvent<Object>> sink;
+
+        private FluxEventSink(final FluxSink<ServerSentEvent<Object>> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void send(final String name, final Object data) {
+            sink.next(ServerSentEvent.builder(data).event(name).build());
+        }
+
+        @Override
+        public void complete() {
+            sink.complete();
+        }
+
+        @Override
+        public void fail(final Throwable e) {
+            sink.error(e);
+        }
+
+        @Override
+        public boolean ready() {
+            return sink.requestedFromDownstream() > 0;
+        }
+    }
+}
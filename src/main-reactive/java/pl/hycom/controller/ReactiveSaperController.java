@@ -0,0 +1,208 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.controller;
+
+import static pl.hycom.controller.SaperController.ATTR_GAME_ID;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.reactive.result.view.Rendering;
+import org.springframework.web.reactive.result.view.View;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebSession;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.exception.GameNotFoundException;
+import pl.hycom.model.Board;
+import pl.hycom.service.GamesHolder;
+import pl.hycom.service.RowFragmentCache;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * {@link SaperController} for the {@code reactive} profile, the game engine runs on its own threads and no request
+ * holds a thread while it waits for them.
+ */
+@Slf4j
+@Controller
+@Profile("reactive")
+public class ReactiveSaperController {
+
+    private static final View NOT_MODIFIED = new View() {
+
+        @Override
+        public List<MediaType> getSupportedMediaTypes() {
+            return Collections.singletonList(MediaType.ALL);
+        }
+
+        @Override
+        public Mono<Void> render(final Map<String, ?> model, final MediaType contentType, final ServerWebExchange exchange) {
+            return exchange.getResponse().setComplete();
+        }
+    };
+
+    @Autowired
+    private GamesHolder gamesHolder;
+
+    @Autowired
+    private RowFragmentCache rowFragmentCache;
+
+    @Autowired
+    private Scheduler gameEngineScheduler;
+
+    @GetMapping(value = "/")
+    public String index() {
+        return "redirect:/start";
+    }
+
+    @GetMapping(value = "/start")
+    public String start() {
+        return "start";
+    }
+
+    @GetMapping(value = "/winner")
+    public String winner() {
+        return "winner";
+    }
+
+    @GetMapping(value = "/game-over")
+    public String gameOver() {
+        return "gameOver";
+    }
+
+    @GetMapping(value = "/saper")
+    public Mono<Rendering> initGameWithLevel(@RequestParam(required = false) final String level, final WebSession session) {
+        return onEngine(() -> gamesHolder.initGame(level)).flatMap(gameId -> initGame(gameId, session));
+    }
+
+    @GetMapping(value = "/saper-test")
+    public Mono<Rendering> initGameFromFile(final WebSession session) {
+        return initGameFromTemplate("test", session);
+    }
+
+    @GetMapping(value = "/saper-template")
+    public Mono<Rendering> initGameFromTemplate(@RequestParam final String name, final WebSession session) {
+        return onEngine(() -> gamesHolder.initGameFromTemplate(name)).flatMap(gameId -> initGame(gameId, session));
+    }
+
+    private Mono<Rendering> initGame(final String gameId, final WebSession session) {
+        session.getAttributes().put(ATTR_GAME_ID, gameId);
+
+        return onEngine(() -> boardView(gameId, gamesHolder.getGame(gameId)));
+    }
+
+    @PostMapping(value = "/saper")
+    public Mono<Rendering> action(final ServerWebExchange exchange) {
+        return Mono.zip(exchange.getFormData(), exchange.getSession()).flatMap(request -> {
+            String formGameId = request.getT1().getFirst(ATTR_GAME_ID);
+            String gameId = StringUtils.isNotBlank(formGameId) ? formGameId : request.getT2().getAttribute(ATTR_GAME_ID);
+            String action = request.getT1().getFirst("action");
+
+            return onEngine(() -> {
+                int[] move = SaperController.parseAction(action);
+                Board board = gamesHolder.action(gameId, move[0], move[1]);
+
+                switch (board.state()) {
+                    case WIN:
+                        return Rendering.view("winner").build();
+
+                    case FAIL:
+                        return Rendering.view("gameOver").build();
+
+                    default:
+                        return boardView(gameId, board);
+                }
+            });
+        });
+    }
+
+    /**
+     * See {@link SaperController#game}. Whether the request is not modified is only known on the engine thread, after
+     * the view handling was set up - an empty result would render the default view, so a 304 completes with
+     * {@link #NOT_MODIFIED}, a view which writes nothing.
+     */
+    @GetMapping(value = "/game")
+    public Mono<Object> game(@RequestParam(name = ATTR_GAME_ID, required = false) final String paramGameId, final WebSession session,
+            final ServerWebExchange exchange) {
+        String gameId = StringUtils.isNotBlank(paramGameId) ? paramGameId : session.getAttribute(ATTR_GAME_ID);
+        if (StringUtils.isBlank(gameId)) {
+            return Mono.error(new GameNotFoundException("No game in the session"));
+        }
+
+        return onEngine(() -> {
+            Board board = gamesHolder.getGame(gameId);
+            switch (board.state()) {
+                case WIN:
+                    return Rendering.view("winner").build();
+
+                case FAIL:
+                    return Rendering.view("gameOver").build();
+
+                default:
+                    exchange.getResponse().getHeaders().setCacheControl("no-cache");
+                    return exchange.checkNotModified(SaperController.etag(gameId, board)) ? NOT_MODIFIED : boardView(gameId, board);
+            }
+        });
+    }
+
+    private Rendering boardView(final String gameId, final Board board) {
+        return Rendering.view("index").modelAttribute("rows", rowFragmentCache.render(gameId, board)).modelAttribute(ATTR_GAME_ID, gameId).build();
+    }
+
+    private <T> Mono<T> onEngine(final Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(gameEngineScheduler);
+    }
+
+    @ExceptionHandler(ActionException.class)
+    public String handleActionException() {
+        if (log.isInfoEnabled()) {
+            log.info("User clicked the bomb or action was not valid!");
+        }
+
+        return "gameOver";
+    }
+
+    @ExceptionHandler({ GameNotFoundException.class, GameConfigurationException.class })
+    public String handleGameNotFoundException() {
+        if (log.isWarnEnabled()) {
+            log.warn("Game not found!");
+        }
+
+        return "gameOver";
+    }
+}
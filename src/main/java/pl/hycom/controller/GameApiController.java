@@ -0,0 +1,116 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameNotFoundException;
+import pl.hycom.model.MoveDTO;
+import pl.hycom.model.MoveResultDTO;
+import pl.hycom.service.GameEvents;
+import pl.hycom.service.GameIds;
+import pl.hycom.service.GamesHolder;
+
+/**
+ * Moves made by the script of the board page and by bots, a response carries only the fields the moves opened.
+ */
+@Slf4j
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/games")
+public class GameApiController {
+
+    @Value("${app.api.batch-limit:4096}")
+    private int batchLimit = 4096;
+
+    @Autowired
+    private GamesHolder gamesHolder;
+
+    @Autowired
+    private GameEvents gameEvents;
+
+    @PostMapping(value = "/{gameId}/moves")
+    public MoveResultDTO move(@PathVariable final String gameId, @RequestBody final MoveDTO move) throws GameNotFoundException, ActionException {
+        return moves(gameId, new int[] { move.getRow(), move.getColumn() });
+    }
+
+    /**
+     * Applies the moves in order until the game ends.
+     *
+     * @param moves row and column of every move one after another, e.g. {@code [0, 0, 3, 5]}
+     */
+    @PostMapping(value = "/{gameId}/moves/batch")
+    public MoveResultDTO moves(@PathVariable final String gameId, @RequestBody final int[] moves) throws GameNotFoundException, ActionException {
+        if (moves.length > batchLimit * 2) {
+            throw new ActionException("Batch of " + moves.length / 2 + " moves is over the limit of " + batchLimit);
+        }
+
+        GamesHolder.Batch batch = gamesHolder.moves(gameId, moves);
+        if (batch.getFailure() != null && log.isInfoEnabled()) {
+            log.info("User clicked the bomb or action was not valid!");
+        }
+
+        return MoveResultDTO.from(batch.getBoard(), batch.getRevealed(), batch.getApplied());
+    }
+
+    /**
+     * Stream of the fields opened in the game by anyone, see {@link GameEvents}.
+     */
+    @GetMapping(value = "/{gameId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable final String gameId) throws GameNotFoundException {
+        gamesHolder.getGame(gameId);
+        return gameEvents.subscribe(GameIds.parse(gameId));
+    }
+
+    @ExceptionHandler(ActionException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public void handleActionException() {
+        if (log.isInfoEnabled()) {
+            log.info("Moves were not valid!");
+        }
+    }
+
+    @ExceptionHandler(GameNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public void handleGameNotFoundException() {
+        if (log.isWarnEnabled()) {
+            log.warn("Game not found!");
+        }
+    }
+}
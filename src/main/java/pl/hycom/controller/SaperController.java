@@ -23,19 +23,19 @@
  */
 package pl.hycom.controller;
 
-import java.io.IOException;
-
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 import lombok.extern.slf4j.Slf4j;
@@ -43,11 +43,12 @@ import pl.hycom.exception.ActionException;
 import pl.hycom.exception.GameConfigurationException;
 import pl.hycom.exception.GameNotFoundException;
 import pl.hycom.model.Board;
-import pl.hycom.service.BoardService;
 import pl.hycom.service.GamesHolder;
+import pl.hycom.service.RowFragmentCache;
 
 @Slf4j
 @Controller
+@Profile("!reactive")
 public class SaperController {
 
     public static final String ATTR_GAME_ID = "gameId";
@@ -56,7 +57,7 @@ public class SaperController {
     private GamesHolder gamesHolder;
 
     @Autowired
-    private BoardService boardService;
+    private RowFragmentCache rowFragmentCache;
 
     @GetMapping(value = "/")
     public String index() {
@@ -68,6 +69,16 @@ public class SaperController {
         return "start";
     }
 
+    @GetMapping(value = "/winner")
+    public String winner() {
+        return "winner";
+    }
+
+    @GetMapping(value = "/game-over")
+    public String gameOver() {
+        return "gameOver";
+    }
+
     @GetMapping(value = "/saper")
     public ModelAndView initGameWithLevel(@RequestParam(required = false) final String level, final HttpSession session) throws GameNotFoundException, GameConfigurationException {
 
@@ -78,10 +89,14 @@ public class SaperController {
     }
 
     @GetMapping(value = "/saper-test")
-    public ModelAndView initGameFromFile(final HttpSession session) throws GameNotFoundException, IOException, GameConfigurationException {
+    public ModelAndView initGameFromFile(final HttpSession session) throws GameNotFoundException, GameConfigurationException {
+        return initGameFromTemplate("test", session);
+    }
 
-        Resource resource = new PathMatchingResourcePatternResolver().getResource("file/test.txt");
-        String gameId = gamesHolder.initGame(resource.getFile());
+    @GetMapping(value = "/saper-template")
+    public ModelAndView initGameFromTemplate(@RequestParam final String name, final HttpSession session) throws GameNotFoundException, GameConfigurationException {
+
+        String gameId = gamesHolder.initGameFromTemplate(name);
 
         return initGame(gameId, session);
     }
@@ -91,15 +106,37 @@ public class SaperController {
 
         Board board = gamesHolder.getGame(gameId);
 
-        return new ModelAndView("index", "boardContainer", board.prepareDTO());
+        return boardView(gameId, board);
     }
 
+    /**
+     * The game id is sent with the move, so any instance can serve it when games are shared, the session is used for
+     * forms rendered before.
+     */
     @PostMapping(value = "/saper")
-    public ModelAndView action(final String action, final HttpSession session) throws GameNotFoundException, ActionException {
-        String gameId = (String) session.getAttribute(ATTR_GAME_ID);
+    public ModelAndView action(final String action, @RequestParam(name = ATTR_GAME_ID, required = false) final String formGameId, final HttpSession session)
+            throws GameNotFoundException, ActionException {
+        String gameId = StringUtils.isNotBlank(formGameId) ? formGameId : (String) session.getAttribute(ATTR_GAME_ID);
 
-        Board board = gamesHolder.getGame(gameId);
+        int[] move = parseAction(action);
+        Board board = gamesHolder.action(gameId, move[0], move[1]);
+
+        switch (board.state()) {
+            case WIN:
+                return new ModelAndView("winner");
+
+            case FAIL:
+                return new ModelAndView("gameOver");
+
+            default:
+                return boardView(gameId, board);
+        }
+    }
 
+    /**
+     * @return row and column of the action sent by the board form, e.g. {@code 3:5}
+     */
+    static int[] parseAction(final String action) throws ActionException {
         if (StringUtils.isBlank(action)) {
             throw new ActionException("Invalid action[" + action + "]");
         }
@@ -110,24 +147,47 @@ public class SaperController {
         }
 
         try {
-            int row = Integer.parseInt(move[0]);
-            int column = Integer.parseInt(move[1]);
+            return new int[] { Integer.parseInt(move[0]), Integer.parseInt(move[1]) };
+        } catch (NumberFormatException e) {
+            throw new ActionException("Invalid action[" + action + "]");
+        }
+    }
 
-            boardService.action(board, row, column);
+    /**
+     * Board of a started game, e.g. after the page was refreshed. The ETag follows the game version, so a refresh of a
+     * game nobody moved in since gets 304 without any rendering.
+     */
+    @GetMapping(value = "/game")
+    public ModelAndView game(@RequestParam(name = ATTR_GAME_ID, required = false) final String paramGameId, final HttpSession session,
+            final WebRequest request, final HttpServletResponse response) throws GameNotFoundException {
+        String gameId = StringUtils.isNotBlank(paramGameId) ? paramGameId : (String) session.getAttribute(ATTR_GAME_ID);
+        if (StringUtils.isBlank(gameId)) {
+            throw new GameNotFoundException("No game in the session");
+        }
 
-            switch (board.state()) {
-                case WIN:
-                    return new ModelAndView("winner");
+        Board board = gamesHolder.getGame(gameId);
+        switch (board.state()) {
+            case WIN:
+                return new ModelAndView("winner");
+
+            case FAIL:
+                return new ModelAndView("gameOver");
+
+            default:
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+                if (request.checkNotModified(etag(gameId, board))) {
+                    return null;
+                }
+                return boardView(gameId, board);
+        }
+    }
 
-                case FAIL:
-                    return new ModelAndView("gameOver");
+    static String etag(final String gameId, final Board board) {
+        return gameId + "-" + board.getVersion();
+    }
 
-                default:
-                    return new ModelAndView("index", "boardContainer", board.prepareDTO());
-            }
-        } catch (NumberFormatException e) {
-            throw new ActionException("Invalid action[" + action + "]");
-        }
+    private ModelAndView boardView(final String gameId, final Board board) {
+        return new ModelAndView("index", "rows", rowFragmentCache.render(gameId, board)).addObject(ATTR_GAME_ID, gameId);
     }
 
     @ExceptionHandler(ActionException.class)
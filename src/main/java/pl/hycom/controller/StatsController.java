@@ -0,0 +1,65 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import pl.hycom.model.Level;
+import pl.hycom.service.BoardPool;
+import pl.hycom.service.GameShard;
+import pl.hycom.service.GamesHolder;
+import pl.hycom.service.RowFragmentCache;
+
+@RestController
+public class StatsController {
+
+    @Autowired
+    private BoardPool boardPool;
+
+    @Autowired
+    private GamesHolder gamesHolder;
+
+    @Autowired
+    private RowFragmentCache rowFragmentCache;
+
+    @GetMapping(value = "/stats/board-pool")
+    public Map<Level, BoardPool.Stats> boardPool() {
+        return boardPool.stats();
+    }
+
+    @GetMapping(value = "/stats/games")
+    public List<GameShard.Stats> games() {
+        return gamesHolder.stats();
+    }
+
+    @GetMapping(value = "/stats/row-cache")
+    public RowFragmentCache.Stats rowCache() {
+        return rowFragmentCache.stats();
+    }
+}
@@ -0,0 +1,284 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+import static pl.hycom.model.PackedCells.TILE_SHIFT;
+import static pl.hycom.model.PackedCells.TILE_SIZE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import pl.hycom.exception.GameConfigurationException;
+
+/**
+ * Binary form of the board, about one bit per field.
+ * <pre>
+ * magic "SAPR" | version (byte) | flags (byte) | state (byte) | reserved (byte)
+ * rows (int) | columns (int) | bombs (int) | seed (long)
+ * bombs plane: rows * columns bits, row after row, packed in little endian longs
+ * opened fields plane (when FLAG_OPENED_FIELDS is set): same as bombs plane
+ * </pre>
+ * Every plane is padded to whole longs.
+ */
+final class BinaryBoardFormat {
+
+    static final int MAGIC = 0x53415052;
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 28;
+
+    private static final int FLAG_OPENED_FIELDS = 1;
+
+    private BinaryBoardFormat() {
+    }
+
+    static void write(final Board board, final boolean withOpenedFields, final OutputStream output) throws IOException {
+        BoardLayout layout = board.getLayout();
+        WritableByteChannel channel = Channels.newChannel(output);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC)
+                .put(VERSION)
+                .put((byte) (withOpenedFields ? FLAG_OPENED_FIELDS : 0))
+                .put((byte) board.state().ordinal())
+                .put((byte) 0)
+                .putInt(layout.getRows())
+                .putInt(layout.getColumns())
+                .putInt(layout.getBombs())
+                .putLong(layout.getSeed());
+        header.flip();
+        writeFully(channel, header);
+
+        BitWriter bombs = new BitWriter(channel);
+        for (int row = 0; row < layout.getRows(); row++) {
+            for (int tileColumn = 0; tileColumn << TILE_SHIFT < layout.getColumns(); tileColumn++) {
+                int first = tileColumn << TILE_SHIFT;
+                int count = Math.min(TILE_SIZE, layout.getColumns() - first);
+                long word = 0;
+                for (int i = 0; i < count; i++) {
+                    if (layout.hasBomb(row, first + i)) {
+                        word |= 1L << i;
+                    }
+                }
+                bombs.write(word, count);
+            }
+        }
+        bombs.finish();
+
+        if (withOpenedFields) {
+            OpenedFields openedFields = board.openedFields();
+            BitWriter opened = new BitWriter(channel);
+            for (int row = 0; row < layout.getRows(); row++) {
+                for (int tileColumn = 0; tileColumn << TILE_SHIFT < layout.getColumns(); tileColumn++) {
+                    opened.write(openedFields.getWord(row, tileColumn), Math.min(TILE_SIZE, layout.getColumns() - (tileColumn << TILE_SHIFT)));
+                }
+            }
+            opened.finish();
+        }
+    }
+
+    static BoardLayout readLayout(final ByteBuffer source) throws GameConfigurationException {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            readHeader(buffer);
+            return readBombs(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new GameConfigurationException("Board data is truncated.");
+        }
+    }
+
+    static Board readBoard(final ByteBuffer source) throws GameConfigurationException {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int start = buffer.position();
+            int flags = readHeader(buffer);
+            State state = State.values()[buffer.get(start + 6)];
+            BoardLayout layout = readBombs(buffer);
+
+            OpenedFields openedFields = new OpenedFields(layout.getRows(), layout.getColumns());
+            int opened = 0;
+            if ((flags & FLAG_OPENED_FIELDS) != 0) {
+                BitReader reader = new BitReader(buffer);
+                for (int row = 0; row < layout.getRows(); row++) {
+                    for (int tileColumn = 0; tileColumn << TILE_SHIFT < layout.getColumns(); tileColumn++) {
+                        long word = reader.read(Math.min(TILE_SIZE, layout.getColumns() - (tileColumn << TILE_SHIFT)));
+                        openedFields.setWord(row, tileColumn, word);
+                        opened += Long.bitCount(word);
+                    }
+                }
+            }
+
+            return new Board(layout, openedFields, opened, state);
+        } catch (BufferUnderflowException e) {
+            throw new GameConfigurationException("Board data is truncated.");
+        }
+    }
+
+    private static int readHeader(final ByteBuffer buffer) throws GameConfigurationException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new GameConfigurationException("Board data doesn't start with the board header.");
+        }
+
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new GameConfigurationException("Board format version [" + version + "] is not supported.");
+        }
+
+        int flags = buffer.get();
+        byte state = buffer.get();
+        if (state < 0 || state >= State.values().length) {
+            throw new GameConfigurationException("Board state [" + state + "] is not valid.");
+        }
+        buffer.get();
+
+        return flags;
+    }
+
+    private static BoardLayout readBombs(final ByteBuffer buffer) throws GameConfigurationException {
+        int rows = buffer.getInt();
+        int columns = buffer.getInt();
+        int bombs = buffer.getInt();
+        long seed = buffer.getLong();
+
+        if (rows < 0 || columns < 0 || (long) rows * columns > Integer.MAX_VALUE) {
+            throw new GameConfigurationException("Board size [" + rows + "x" + columns + "] is not valid.");
+        }
+
+        BoardLayout layout = new BoardLayout(rows, columns, seed);
+        BitReader reader = new BitReader(buffer);
+        for (int row = 0; row < rows; row++) {
+            for (int tileColumn = 0; tileColumn << TILE_SHIFT < columns; tileColumn++) {
+                int first = tileColumn << TILE_SHIFT;
+                long word = reader.read(Math.min(TILE_SIZE, columns - first));
+                while (word != 0) {
+                    layout.putBomb(row, first + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        if (layout.getBombs() != bombs) {
+            throw new GameConfigurationException("Board has [" + layout.getBombs() + "] bombs, header says [" + bombs + "].");
+        }
+
+        return layout;
+    }
+
+    private static void writeFully(final WritableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Appends bits to little endian longs, flushing them to the channel in chunks.
+     */
+    private static final class BitWriter {
+
+        private final WritableByteChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        private long word;
+
+        private int bits;
+
+        private BitWriter(final WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        private void write(final long value, final int count) throws IOException {
+            long masked = count == Long.SIZE ? value : value & ((1L << count) - 1);
+            word |= masked << bits;
+
+            if (bits + count >= Long.SIZE) {
+                putWord(word);
+                word = bits == 0 ? 0 : masked >>> (Long.SIZE - bits);
+                bits = bits + count - Long.SIZE;
+            } else {
+                bits += count;
+            }
+        }
+
+        private void finish() throws IOException {
+            if (bits > 0) {
+                putWord(word);
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+
+        private void putWord(final long value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+            buffer.putLong(value);
+        }
+    }
+
+    /**
+     * Reads bits written by {@link BitWriter}, the buffer position ends after the last long of the plane.
+     */
+    private static final class BitReader {
+
+        private final ByteBuffer buffer;
+
+        private long word;
+
+        private int used = Long.SIZE;
+
+        private BitReader(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private long read(final int count) {
+            if (used == Long.SIZE) {
+                word = buffer.getLong();
+                used = 0;
+            }
+
+            int available = Long.SIZE - used;
+            long result = word >>> used;
+
+            if (count > available) {
+                word = buffer.getLong();
+                result |= word << available;
+                used = count - available;
+            } else {
+                used += count;
+            }
+
+            return count == Long.SIZE ? result : result & ((1L << count) - 1);
+        }
+    }
+}
@@ -23,19 +23,17 @@
  */
 package pl.hycom.model;
 
-import static java.time.temporal.ChronoUnit.SECONDS;
-
 import java.io.File;
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedHashMap;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 import lombok.extern.slf4j.Slf4j;
 import pl.hycom.exception.ActionException;
@@ -44,35 +42,61 @@ import pl.hycom.exception.GameConfigurationException;
 
 /**
  * Class responsible for create and filled board game with the appropriate values.
+ * The bombs are kept in a {@link BoardLayout} which may be shared with other games, the board itself holds only
+ * opened fields and the state of this game.
  *
  * @author Rafal Ceglinski
  */
 @Slf4j
 public class Board {
 
-    private BoardPoint[][] boardPoints;
+    // scratch queue of the flood fill, one per thread instead of one per game
+    private static final ThreadLocal<IntQueue> REVEAL_QUEUE = ThreadLocal.withInitial(IntQueue::new);
+
+    private final BoardLayout layout;
+
+    private final int rows;
+
+    private final int columns;
 
-    private final LocalTime localDateTime = LocalTime.now();
+    private final OpenedFields openedFields;
+
+    // fields without bomb which are still not opened, the game is won when it drops to zero
+    private int hiddenFields;
 
     private State state = State.ACTIVE;
 
-    private Board() {
+    // created on the first render, racing renders at worst create it twice
+    private BoardFieldsView fieldsView;
+
+    private Board(final BoardLayout layout) {
+        this(layout, new OpenedFields(layout.getRows(), layout.getColumns()), 0, State.ACTIVE);
     }
 
-    public void updateStateIfGameExpired(final int timeAfterSessionExpires) {
-        if (SECONDS.between(localDateTime, LocalDateTime.now()) >= timeAfterSessionExpires) {
-            state = State.FAIL;
-        }
+    Board(final BoardLayout layout, final OpenedFields openedFields, final int opened, final State state) {
+        this.layout = layout;
+        this.openedFields = openedFields;
+        this.state = state;
+        rows = layout.getRows();
+        columns = layout.getColumns();
+        hiddenFields = rows * columns - layout.getBombs() - opened;
     }
 
-    public void check(final int row, final int column) throws ActionException {
+    /**
+     * Opens the field and, when there is no bomb around it, the whole empty area connected to it.
+     *
+     * @return fields opened by this move, empty when the field was already open
+     */
+    public RevealedCells check(final int row, final int column) throws ActionException {
         checkRowAndColumn(row, column);
 
         checkBomb(row, column);
 
-        disableFields(row, column);
+        RevealedCells revealed = disableFields(row, column);
 
         checkWin();
+
+        return revealed;
     }
 
     private void checkRowAndColumn(final int row, final int column) throws ActionException {
@@ -80,265 +104,346 @@ public class Board {
             state = State.FAIL;
             throw new ActionException("Row and column should be higher than zero.");
         }
+
+        if (row >= rows || column >= columns) {
+            state = State.FAIL;
+            throw new ActionException("Row and column should be lower than board size.");
+        }
+    }
+
+    private int index(final int row, final int column) {
+        return row * columns + column;
     }
 
     private void checkBomb(final int row, final int column) throws BombException {
-        if (boardPoints[row][column].hasBomb()) {
+        if (layout.hasBomb(row, column)) {
             state = State.FAIL;
             throw new BombException("explosion!");
         }
     }
 
-    private void disableFields(final int row, final int column) {
-        if (!boardPoints[row][column].isAvailable()) {
-            return;
+    private RevealedCells disableFields(final int row, final int column) {
+        if (openedFields.isOpened(row, column)) {
+            return RevealedCells.NONE;
         }
 
-        boardPoints[row][column].disable();
+        IntQueue revealQueue = REVEAL_QUEUE.get();
+        openedFields.open(row, column);
+        revealQueue.add(index(row, column));
+
+        // breadth first walk over the queue instead of recursion, so large empty areas can't overflow the stack
+        for (int position = 0; position < revealQueue.size(); position++) {
+            int index = revealQueue.get(position);
+            int i = index / columns;
+            int j = index % columns;
+            if (layout.getBombsAround(i, j) == 0) {
+                disableFieldsAround(i, j, revealQueue);
+            }
+        }
+
+        hiddenFields -= revealQueue.size();
 
         if (log.isInfoEnabled()) {
-            log.info("Disabling field [" + row + ":" + column + "]");
+            log.info("Disabling field [" + row + ":" + column + "], opened fields [" + revealQueue.size() + "], hidden fields [" + hiddenFields + "]");
         }
 
-        disableFieldsAround(row, column);
+        int[] revealed = revealQueue.toArray();
+        revealQueue.clear();
+        return new RevealedCells(columns, revealed);
     }
 
-    private void disableFieldsAround(final int row, final int column) {
-        if (boardPoints[row][column].getBombsAround() != 0) {
-            return;
-        }
-
+    private void disableFieldsAround(final int row, final int column, final IntQueue revealQueue) {
         for (int i = row - 1; i <= row + 1; i++) {
-            if (i >= 0 && i < boardPoints.length) {
+            if (i >= 0 && i < rows) {
                 for (int j = column - 1; j <= column + 1; j++) {
-                    if (j >= 0 && j < boardPoints.length) {
-                        if (i != row || j != column) {
-                            if (boardPoints[i][j].isAvailable()) {
-                                boardPoints[i][j].disable();
-
-                                log.info("Disabled field =[" + i + ":" + j + "] number of bomb =[" + boardPoints[i][j].getBombsAround() + "]");
-                                disableFieldsAround(i, j);
-                            }
+                    if (j >= 0 && j < columns) {
+                        if ((i != row || j != column) && !openedFields.isOpened(i, j)) {
+                            openedFields.open(i, j);
+                            revealQueue.add(index(i, j));
                         }
                     }
                 }
             }
         }
-
     }
 
     private void checkWin() {
-        if (countAvailableFields() == countFieldsWithBomb()) {
+        if (hiddenFields == 0) {
             state = State.WIN;
         }
     }
 
-    private long countAvailableFields() {
-        long openCount = Arrays.stream(boardPoints).flatMap(Arrays::stream).filter(BoardPoint::isAvailable).count();
+    public State state() {
+        return state;
+    }
 
-        if (log.isInfoEnabled()) {
-            log.info("Open count [" + openCount + "]");
-        }
+    public BoardLayout getLayout() {
+        return layout;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
 
-        return openCount;
+    /**
+     * Memory taken by the opened fields of this game, the layout is not counted as it may be shared.
+     */
+    public long getAllocatedBytes() {
+        return openedFields.allocatedBytes();
     }
 
-    private long countFieldsWithBomb() {
-        long bombsCount = Arrays.stream(boardPoints).flatMap(Arrays::stream).filter(BoardPoint::hasBomb).count();
+    public long getSeed() {
+        return layout.getSeed();
+    }
 
-        if (log.isInfoEnabled()) {
-            log.info("Bombs count [" + bombsCount + "]");
+    public int getBombs() {
+        return layout.getBombs();
+    }
+
+    public int getHiddenFields() {
+        return hiddenFields;
+    }
+
+    /**
+     * Version of the game, changes with every move which opened a field. Fields are never closed, so it's the number
+     * of opened fields.
+     */
+    public int getVersion() {
+        return rows * columns - layout.getBombs() - hiddenFields;
+    }
+
+    /**
+     * Version of a row, changes whenever a field in it is opened - it's the number of opened fields in the row, which
+     * is kept in the opened fields themselves and comes back with the board from any store.
+     */
+    public int getRowVersion(final int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row[" + row + "] out of the board");
         }
+        return openedFields.openedInRow(row);
+    }
 
-        return bombsCount;
+    /**
+     * Writes the board in the binary format read by {@link BoardFactory#createFromBinary(ByteBuffer)}:
+     * header with size, number of bombs, seed and state, then one bit per field for bombs and,
+     * optionally, one bit per field for opened fields.
+     */
+    public void export(final OutputStream output, final boolean withOpenedFields) throws IOException {
+        BinaryBoardFormat.write(this, withOpenedFields, output);
     }
 
-    public State state() {
-        return state;
+    /**
+     * Writes the opened fields in the form read by {@link BoardFactory#createView(BoardLayout, LongBuffer, int, State)}:
+     * one long per 64 columns of a row, row after row, starting at the position of the buffer.
+     */
+    public void exportOpenedFields(final LongBuffer target) {
+        int tileColumns = openedFields.getTileColumns();
+        int start = target.position();
+        for (int row = 0; row < rows; row++) {
+            for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+                target.put(start + row * tileColumns + tileColumn, openedFields.getWord(row, tileColumn));
+            }
+        }
+    }
+
+    OpenedFields openedFields() {
+        return openedFields;
     }
 
     /**
      * The method is responsible for convert array to map structure.
      * It's the way how to easier manipulate of values (how many bombs is near point and which fields are disabled to choose)
      * and way how to dynamically show board game in HTML.
+     * <p>
+     * The map is a read-only view of this board, nothing is copied and fields are shared instances, so rendering
+     * allocates next to nothing. Moves made while it's read show up in it.
      */
     public Map<Integer, List<FieldDTO>> prepareDTO() {
+        BoardFieldsView view = fieldsView;
+        if (view == null) {
+            view = new BoardFieldsView(this);
+            fieldsView = view;
+        }
+        return view;
+    }
 
-        // the key is the row, the column is an index in the list.
-        Map<Integer, List<FieldDTO>> boardContainer = new LinkedHashMap<>();
-
-        for (int row = 0; row < boardPoints.length; row++) {
-            List<FieldDTO> fields = new ArrayList<>();
-            for (int column = 0; column < boardPoints.length; column++) {
-                fields.add(new FieldDTO(boardPoints[row][column].getBombsAround(), !boardPoints[row][column].isAvailable(), boardPoints[row][column].hasBomb()));
-            }
-            boardContainer.put(row, fields);
+    FieldDTO field(final int row, final int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Field[" + row + ":" + column + "] out of the board");
         }
 
-        return boardContainer;
+        boolean hasBomb = layout.hasBomb(row, column);
+        return FieldDTO.of(hasBomb ? 0 : layout.getBombsAround(row, column), openedFields.isOpened(row, column), hasBomb);
     }
 
     public static class BoardFactory {
 
-        private static final Random RANDOM = new Random();
-
         private BoardFactory() {
         }
 
         public static Board createEmpty() {
-            Board board = new Board();
-            prepareBoard(board, 0);
-            return board;
+            return create(new BoardLayout(0, 0, 0));
         }
 
-        public static Board createStatic(final File file) throws GameConfigurationException {
-            Board board = new Board();
+        /**
+         * Starts a new game on the given layout, the layout is shared and not copied.
+         */
+        public static Board create(final BoardLayout layout) {
+            return new Board(layout);
+        }
 
-            fileValidator(board, file);
-            prepareBoard(board, 8);
-            addBombs(board, file);
-            putNumberOfBombsAroundPoint(board);
+        /**
+         * Game on the shared layout whose opened fields live in the buffer, written by
+         * {@link Board#exportOpenedFields(LongBuffer)}. Nothing is decoded or copied, moves write straight to the
+         * buffer - the state and the number of opened fields are kept by the caller.
+         */
+        public static Board createView(final BoardLayout layout, final LongBuffer openedFields, final int opened, final State state) {
+            return new Board(layout, new OpenedFieldsView(layout.getRows(), layout.getColumns(), openedFields), opened, state);
+        }
 
-            return board;
+        /**
+         * Number of longs taken by the opened fields of a game on the layout, see {@link #createView(BoardLayout, LongBuffer, int, State)}.
+         */
+        public static int openedFieldsWords(final BoardLayout layout) {
+            return OpenedFieldsView.words(layout.getRows(), layout.getColumns());
         }
 
-        public static Board createRandom(final int numberBombs, final int boardSize) throws GameConfigurationException {
-            Board board = new Board();
+        public static Board createStatic(final File file) throws GameConfigurationException {
+            return create(createStaticLayout(file));
+        }
 
-            inputParameterValidation(board, numberBombs, boardSize);
-            prepareBoard(board, boardSize);
-            addBombs(board, numberBombs);
-            putNumberOfBombsAroundPoint(board);
+        public static Board createRandom(final int numberBombs, final int boardSize) throws GameConfigurationException {
+            return createRandom(numberBombs, boardSize, boardSize);
+        }
 
-            return board;
+        public static Board createRandom(final int numberBombs, final int rows, final int columns) throws GameConfigurationException {
+            return createRandom(numberBombs, rows, columns, ThreadLocalRandom.current().nextLong());
         }
 
-        private static void fileValidator(final Board board, final File file) throws GameConfigurationException {
-            if (file == null || file.length() == 0) {
-                board.state = State.FAIL;
-                throw new GameConfigurationException("File is null");
-            }
+        public static Board createRandom(final int numberBombs, final int rows, final int columns, final long seed) throws GameConfigurationException {
+            return create(createRandomLayout(numberBombs, rows, columns, seed));
         }
 
-        private static void inputParameterValidation(final Board board, final int numberBombs, final int boardSize) throws GameConfigurationException {
-            if (numberBombs > boardSize * boardSize) {
-                board.state = State.FAIL;
-                throw new GameConfigurationException("Number of bombs can't be higher than board size.");
+        /**
+         * Reads the layout from a text file with one row per line, 1 for a bomb and 0 for an empty field.
+         * The size of the board is taken from the file.
+         */
+        public static BoardLayout createStaticLayout(final File file) throws GameConfigurationException {
+            fileValidator(file);
 
-            }
+            return StaticBoardParser.parse(file);
+        }
 
-            if (numberBombs < 0 || boardSize <= 0) {
-                board.state = State.FAIL;
-                throw new GameConfigurationException("Number of bombs and board size can't be less than zero.");
+        /**
+         * Reads the board written by {@link Board#export(OutputStream, boolean)}. The file is memory mapped, so even
+         * very large boards are read without copying the file to the heap first.
+         */
+        public static Board createFromBinary(final File file) throws GameConfigurationException {
+            fileValidator(file);
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                return createFromBinary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } catch (IOException e) {
+                throw new GameConfigurationException("Can't read file [" + file + "]: " + e.getMessage());
             }
         }
 
-        private static void prepareBoard(final Board board, final int boardSize) {
-            board.boardPoints = new BoardPoint[boardSize][boardSize];
-            for (int i = 0; i < boardSize; i++) {
-                for (int j = 0; j < boardSize; j++) {
-                    board.boardPoints[i][j] = new BoardPoint();
-                }
-            }
+        /**
+         * Reads the board written by {@link Board#export(OutputStream, boolean)}, opened fields are restored
+         * when they were exported.
+         */
+        public static Board createFromBinary(final ByteBuffer buffer) throws GameConfigurationException {
+            return BinaryBoardFormat.readBoard(buffer);
         }
 
-        private static void addBombs(final Board board, final File file) {
-            try (Scanner scanner = new Scanner(file)) {
-                int row = 0;
-                int column = 0;
-                while (scanner.hasNext()) {
+        /**
+         * Reads only the bombs of the board written by {@link Board#export(OutputStream, boolean)}.
+         */
+        public static BoardLayout createBinaryLayout(final ByteBuffer buffer) throws GameConfigurationException {
+            return BinaryBoardFormat.readLayout(buffer);
+        }
 
-                    String line = scanner.next();
+        /**
+         * Reads the layout in the same text format as {@link #createStaticLayout(File)} from the buffer,
+         * the source is used only in error messages.
+         */
+        public static BoardLayout createStaticLayout(final ByteBuffer buffer, final String source) throws GameConfigurationException {
+            return StaticBoardParser.parse(buffer, source);
+        }
 
-                    if (Integer.valueOf(line) == 1) {
-                        board.boardPoints[row][column].setBomb();
-                    }
+        public static BoardLayout createRandomLayout(final int numberBombs, final int rows, final int columns, final long seed) throws GameConfigurationException {
+            inputParameterValidation(numberBombs, rows, columns);
 
-                    if (column == 7) {
-                        row++;
-                        column = 0;
-                    } else {
-                        column++;
-                    }
-                }
+            BoardLayout layout = new BoardLayout(rows, columns, seed);
+            addBombs(layout, numberBombs);
 
-            } catch (IOException e) {
-                log.error("Problem with file.");
-            }
+            return layout;
         }
 
-        private static void addBombs(final Board board, int numberBombs) {
-            while (numberBombs > 0) {
-                int row = random(board.boardPoints.length);
-                int column = random(board.boardPoints.length);
-
-                if (canAddBomb(board, row, column)) {
-                    board.boardPoints[row][column].setBomb();
-                    numberBombs--;
-                }
+        private static void fileValidator(final File file) throws GameConfigurationException {
+            if (file == null) {
+                throw new GameConfigurationException("File is null");
             }
-        }
 
-        private static int random(final int max) {
-            return RANDOM.nextInt(max);
+            if (file.length() == 0) {
+                throw new GameConfigurationException("File [" + file + "] is empty or doesn't exist.");
+            }
         }
 
-        private static boolean canAddBomb(final Board board, final int row, final int column) {
-            if (board.boardPoints[row][column].hasBomb()) {
-                return false;
+        private static void inputParameterValidation(final int numberBombs, final int rows, final int columns) throws GameConfigurationException {
+            if (numberBombs < 0 || rows <= 0 || columns <= 0) {
+                throw new GameConfigurationException("Number of bombs and board size can't be less than zero.");
             }
 
-            if (!bombsCheck(board, row, column)) {
-                return false;
+            if ((long) rows * columns > Integer.MAX_VALUE) {
+                throw new GameConfigurationException("Board can't have more than " + Integer.MAX_VALUE + " fields.");
             }
 
-            for (int i = row - 1; i <= row + 1; i++) {
-                if (i >= 0 && i < board.boardPoints.length) {
-                    for (int j = column - 1; j <= column + 1; j++) {
-                        if (j >= 0 && j < board.boardPoints.length) {
-                            if (i != row || j != column) {
-                                if (!bombsCheck(board, i, j)) {
-                                    return false;
-                                }
-                            }
-                        }
-                    }
-                }
+            if (numberBombs > rows * columns) {
+                throw new GameConfigurationException("Number of bombs can't be higher than board size.");
             }
-
-            return true;
         }
 
-        private static boolean bombsCheck(final Board board, final int row, final int column) {
-            if (countBombsAroundPoint(board, row, column) == 8) {
-                return false;
-            }
-
-            if ((row == 0 || row == board.boardPoints.length - 1) && (column == 0 || column == board.boardPoints.length - 1)) {
-                if (countBombsAroundPoint(board, row, column) == 3) {
-                    return false;
+        /**
+         * Draws fields from a partial shuffle of all fields, so every field is considered at most once. The number of bombs
+         * around each field is updated as bombs are placed and used to reject a field which would close its neighbour
+         * (or itself) in with bombs. Counters only grow, so a rejected field can't become valid later and one pass over
+         * the shuffle is enough to decide that the bombs can't be placed.
+         */
+        private static void addBombs(final BoardLayout layout, final int numberBombs) throws GameConfigurationException {
+            IndexShuffle fields = new IndexShuffle(layout.getRows() * layout.getColumns(), new SplittableRandom(layout.getSeed()));
+
+            while (layout.getBombs() < numberBombs && fields.hasNext()) {
+                int index = fields.next();
+                int row = index / layout.getColumns();
+                int column = index % layout.getColumns();
+
+                if (canAddBomb(layout, row, column)) {
+                    layout.putBomb(row, column);
                 }
             }
 
-            if (row == 0 || row == board.boardPoints.length - 1 || column == 0 || column == board.boardPoints.length - 1) {
-                if (countBombsAroundPoint(board, row, column) == 5) {
-                    return false;
-                }
+            if (layout.getBombs() < numberBombs) {
+                throw new GameConfigurationException("Can't place [" + numberBombs + "] bombs on board [" + layout.getRows() + "x" + layout.getColumns() + "] without closing any field in.");
             }
-
-            return true;
         }
 
-        private static int countBombsAroundPoint(final Board board, final int row, final int column) {
-            int bombsCount = 0;
+        private static boolean canAddBomb(final BoardLayout layout, final int row, final int column) {
+            if (layout.hasBomb(row, column) || isClosed(layout, row, column, 0)) {
+                return false;
+            }
 
             for (int i = row - 1; i <= row + 1; i++) {
-                if (i >= 0 && i < board.boardPoints.length) {
+                if (i >= 0 && i < layout.getRows()) {
                     for (int j = column - 1; j <= column + 1; j++) {
-                        if (j >= 0 && j < board.boardPoints.length) {
+                        if (j >= 0 && j < layout.getColumns()) {
                             if (i != row || j != column) {
-                                if (board.boardPoints[i][j].hasBomb()) {
-                                    bombsCount++;
+                                if (isClosed(layout, i, j, 1)) {
+                                    return false;
                                 }
                             }
                         }
@@ -346,17 +451,27 @@ public class Board {
                 }
             }
 
-            return bombsCount;
+            return true;
         }
 
-        private static void putNumberOfBombsAroundPoint(final Board board) {
-            for (int i = 0; i < board.boardPoints.length; i++) {
-                for (int j = 0; j < board.boardPoints.length; j++) {
-                    if (!board.boardPoints[i][j].hasBomb()) {
-                        board.boardPoints[i][j].setBombsAround(countBombsAroundPoint(board, i, j));
-                    }
-                }
+        /**
+         * Checks if the field is (or with additional bombs would be) surrounded by bombs only: 8 inside the board,
+         * 5 at the edge and 3 in the corner.
+         */
+        private static boolean isClosed(final BoardLayout layout, final int row, final int column, final int additionalBombs) {
+            int bombsAround = layout.getBombsAround(row, column) + additionalBombs;
+            int lastRow = layout.getRows() - 1;
+            int lastColumn = layout.getColumns() - 1;
+
+            if ((row == 0 || row == lastRow) && (column == 0 || column == lastColumn)) {
+                return bombsAround == 3;
             }
+
+            if (row == 0 || row == lastRow || column == 0 || column == lastColumn) {
+                return bombsAround == 5;
+            }
+
+            return bombsAround == 8;
         }
     }
 }
@@ -0,0 +1,105 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Rows of a board as the map the board page is rendered from, fields are the shared {@link FieldDTO} instances read
+ * from the board when asked for. Rows are created once per board, so rendering it again allocates next to nothing.
+ */
+final class BoardFieldsView extends AbstractMap<Integer, List<FieldDTO>> {
+
+    private final Board board;
+
+    private final List<Entry<Integer, List<FieldDTO>>> rows;
+
+    BoardFieldsView(final Board board) {
+        this.board = board;
+
+        List<Entry<Integer, List<FieldDTO>>> entries = new ArrayList<>(board.getRows());
+        for (int row = 0; row < board.getRows(); row++) {
+            entries.add(new SimpleImmutableEntry<>(row, new Row(row)));
+        }
+        rows = Collections.unmodifiableList(entries);
+    }
+
+    @Override
+    public int size() {
+        return board.getRows();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return key instanceof Integer && (Integer) key >= 0 && (Integer) key < board.getRows();
+    }
+
+    @Override
+    public List<FieldDTO> get(final Object key) {
+        return containsKey(key) ? rows.get((Integer) key).getValue() : null;
+    }
+
+    @Override
+    public Set<Entry<Integer, List<FieldDTO>>> entrySet() {
+        return new AbstractSet<Entry<Integer, List<FieldDTO>>>() {
+
+            @Override
+            public int size() {
+                return board.getRows();
+            }
+
+            @Override
+            public Iterator<Entry<Integer, List<FieldDTO>>> iterator() {
+                return rows.iterator();
+            }
+        };
+    }
+
+    private final class Row extends AbstractList<FieldDTO> implements RandomAccess {
+
+        private final int row;
+
+        private Row(final int row) {
+            this.row = row;
+        }
+
+        @Override
+        public FieldDTO get(final int column) {
+            return board.field(row, column);
+        }
+
+        @Override
+        public int size() {
+            return board.getColumns();
+        }
+    }
+}
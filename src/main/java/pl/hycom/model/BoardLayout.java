@@ -0,0 +1,105 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+/**
+ * Bombs and number of bombs around every field - the part of the board which doesn't change during the game.
+ * The layout is built by {@link Board.BoardFactory} and never modified afterwards, so one layout can be shared by any
+ * number of games, each keeping only its own opened fields.
+ */
+public final class BoardLayout {
+
+    private final int rows;
+
+    private final int columns;
+
+    private final long seed;
+
+    private final PackedCells cells;
+
+    private int bombs;
+
+    BoardLayout(final int rows, final int columns, final long seed) {
+        this.rows = rows;
+        this.columns = columns;
+        this.seed = seed;
+        cells = new PackedCells(rows, columns);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Seed of the random generator used to place bombs, the same seed and board parameters give the same layout.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getBombs() {
+        return bombs;
+    }
+
+    public boolean hasBomb(final int row, final int column) {
+        return cells.hasBomb(row, column);
+    }
+
+    public int getBombsAround(final int row, final int column) {
+        return cells.getBombsAround(row, column);
+    }
+
+    public long getAllocatedBytes() {
+        return cells.allocatedBytes();
+    }
+
+    /**
+     * Places the bomb and adds it to the counters of its neighbours, so the number of bombs around every field
+     * is ready after a single pass over the bombs instead of counting neighbours of every field.
+     */
+    void putBomb(final int row, final int column) {
+        if (cells.hasBomb(row, column)) {
+            return;
+        }
+
+        cells.setBomb(row, column);
+        bombs++;
+
+        for (int i = row - 1; i <= row + 1; i++) {
+            if (i >= 0 && i < rows) {
+                for (int j = column - 1; j <= column + 1; j++) {
+                    if (j >= 0 && j < columns) {
+                        if (i != row || j != column) {
+                            cells.setBombsAround(i, j, cells.getBombsAround(i, j) + 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -23,19 +23,35 @@
  */
 package pl.hycom.model;
 
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
 /**
  * Class responsible for holding an actual game values.
+ * Fields are immutable and compared by value. There are only 36 different ones, {@link #of(int, boolean, boolean)}
+ * hands out shared instances so rendering a board doesn't create one per field.
  * 
  * @author Rafal Ceglinski
  */
-@Data
+@Getter
+@EqualsAndHashCode
+@ToString
 public class FieldDTO {
 
-    private int value;
-    private boolean disabled;
-    private boolean hasBomb;
+    private static final FieldDTO[] FIELDS = new FieldDTO[9 * 4];
+
+    static {
+        for (int value = 0; value < 9; value++) {
+            for (int flags = 0; flags < 4; flags++) {
+                FIELDS[value * 4 + flags] = new FieldDTO(value, (flags & 2) != 0, (flags & 1) != 0);
+            }
+        }
+    }
+
+    private final int value;
+    private final boolean disabled;
+    private final boolean hasBomb;
 
     public FieldDTO(final int value, final boolean disabled, final boolean hasBomb) {
         this.value = value;
@@ -43,4 +59,14 @@ public class FieldDTO {
         this.hasBomb = hasBomb;
     }
 
+    /**
+     * @param value bombs around the field, 0 to 8
+     */
+    public static FieldDTO of(final int value, final boolean disabled, final boolean hasBomb) {
+        if (value < 0 || value > 8) {
+            throw new IllegalArgumentException("Field value[" + value + "] out of range");
+        }
+        return FIELDS[value * 4 + (disabled ? 2 : 0) + (hasBomb ? 1 : 0)];
+    }
+
 }
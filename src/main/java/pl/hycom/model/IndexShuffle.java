@@ -0,0 +1,123 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Partial Fisher-Yates shuffle of indexes {@code 0..size-1}. Every call of {@link #next()} returns an index which was
+ * not returned before, chosen uniformly from the remaining ones.
+ * <p>
+ * Only swapped positions are remembered (in an open addressing map of ints), so drawing k indexes costs O(k) time and
+ * memory no matter how many indexes there are.
+ */
+final class IndexShuffle {
+
+    private static final int FREE = -1;
+
+    private final int size;
+
+    private final SplittableRandom random;
+
+    private int drawn;
+
+    private int[] keys = new int[16];
+
+    private int[] values = new int[16];
+
+    private int swapped;
+
+    IndexShuffle(final int size, final SplittableRandom random) {
+        this.size = size;
+        this.random = random;
+        Arrays.fill(keys, FREE);
+    }
+
+    boolean hasNext() {
+        return drawn < size;
+    }
+
+    int next() {
+        int position = drawn + random.nextInt(size - drawn);
+        int chosen = get(position);
+
+        // the first not drawn index takes the place of the chosen one
+        put(position, get(drawn));
+        drawn++;
+
+        return chosen;
+    }
+
+    private int get(final int position) {
+        for (int slot = slot(position, keys.length); keys[slot] != FREE; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == position) {
+                return values[slot];
+            }
+        }
+        return position;
+    }
+
+    private void put(final int position, final int value) {
+        if (swapped * 2 >= keys.length) {
+            grow();
+        }
+
+        int slot = slot(position, keys.length);
+        while (keys[slot] != FREE && keys[slot] != position) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        if (keys[slot] == FREE) {
+            keys[slot] = position;
+            swapped++;
+        }
+        values[slot] = value;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new int[oldKeys.length << 1];
+        values = new int[oldValues.length << 1];
+        Arrays.fill(keys, FREE);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i], keys.length);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & (keys.length - 1);
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(final int position, final int capacity) {
+        int hash = position * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+}
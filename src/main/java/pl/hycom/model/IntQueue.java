@@ -0,0 +1,69 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+import java.util.Arrays;
+
+/**
+ * Growable queue of primitive ints. Taken elements stay in the buffer, so after processing
+ * the queue holds everything that was ever added to it. Meant to be cleared and reused,
+ * a buffer grown over {@link #MAX_RETAINED} elements is dropped on clear, so one huge flood fill
+ * doesn't keep its memory for good.
+ */
+final class IntQueue {
+
+    private static final int INITIAL_SIZE = 16;
+
+    private static final int MAX_RETAINED = 4096;
+
+    private int[] elements = new int[INITIAL_SIZE];
+
+    private int size;
+
+    void clear() {
+        size = 0;
+        if (elements.length > MAX_RETAINED) {
+            elements = new int[INITIAL_SIZE];
+        }
+    }
+
+    void add(final int element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size << 1);
+        }
+        elements[size++] = element;
+    }
+
+    int get(final int position) {
+        return elements[position];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -23,39 +23,15 @@
  */
 package pl.hycom.model;
 
-import lombok.ToString;
+import lombok.Data;
 
-@ToString
-public class BoardPoint {
-
-    private boolean hasBomb;
-
-    private boolean isAvailable = true;
-
-    private int bombsAround = 0;
-
-    public boolean hasBomb() {
-        return hasBomb;
-    }
-
-    void setBomb() {
-        hasBomb = true;
-    }
-
-    public boolean isAvailable() {
-        return isAvailable;
-    }
-
-    public void disable() {
-        isAvailable = false;
-    }
-
-    public int getBombsAround() {
-        return bombsAround;
-    }
+/**
+ * Move sent to the game API.
+ */
+@Data
+public class MoveDTO {
 
-    void setBombsAround(final int bombsAround) {
-        this.bombsAround = bombsAround;
-    }
+    private int row;
+    private int column;
 
 }
@@ -0,0 +1,77 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Game state after moves with only the fields they opened, so the page updates them instead of rendering the whole
+ * board again.
+ */
+@Data
+public class MoveResultDTO {
+
+    private State state;
+
+    private int hiddenFields;
+
+    /** Moves applied, moves after the one which ended the game are skipped. */
+    private int applied;
+
+    /** Opened fields as flat triples: row, column, number of bombs around. */
+    private int[] cells;
+
+    public MoveResultDTO(final State state, final int hiddenFields, final int applied, final int[] cells) {
+        this.state = state;
+        this.hiddenFields = hiddenFields;
+        this.applied = applied;
+        this.cells = cells;
+    }
+
+    public static MoveResultDTO from(final Board board, final List<RevealedCells> revealed, final int applied) {
+        BoardLayout layout = board.getLayout();
+
+        int size = 0;
+        for (RevealedCells cells : revealed) {
+            size += cells.size();
+        }
+
+        int[] cells = new int[size * 3];
+        int next = 0;
+        for (RevealedCells move : revealed) {
+            for (int position = 0; position < move.size(); position++) {
+                int row = move.getRow(position);
+                int column = move.getColumn(position);
+                cells[next++] = row;
+                cells[next++] = column;
+                cells[next++] = layout.getBombsAround(row, column);
+            }
+        }
+
+        return new MoveResultDTO(board.state(), board.getHiddenFields(), applied, cells);
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+import static pl.hycom.model.PackedCells.TILE_MASK;
+import static pl.hycom.model.PackedCells.TILE_SHIFT;
+import static pl.hycom.model.PackedCells.TILE_SIZE;
+
+/**
+ * Bit per field telling if the field was opened, kept in 64x64 tiles where every row of a tile is one long.
+ * Tiles are allocated when the first field inside is opened, and the last row of tiles is only as high as the board,
+ * so an 8x8 game keeps its whole state in eight longs.
+ */
+class OpenedFields {
+
+    private final int rows;
+
+    private final int tileColumns;
+
+    private final long[][] tiles;
+
+    OpenedFields(final int rows, final int columns) {
+        this(rows, columns, true);
+    }
+
+    // views keep the fields in their own buffer and don't allocate tiles
+    OpenedFields(final int rows, final int columns, final boolean tiled) {
+        this.rows = rows;
+        tileColumns = (columns + TILE_MASK) >> TILE_SHIFT;
+        tiles = tiled ? new long[((rows + TILE_MASK) >> TILE_SHIFT) * tileColumns][] : null;
+    }
+
+    int getTileColumns() {
+        return tileColumns;
+    }
+
+    boolean isOpened(final int row, final int column) {
+        long[] tile = tiles[tileIndex(row, column)];
+        return tile != null && (tile[row & TILE_MASK] & (1L << column)) != 0;
+    }
+
+    void open(final int row, final int column) {
+        int tileIndex = tileIndex(row, column);
+        long[] tile = tiles[tileIndex];
+        if (tile == null) {
+            tile = new long[Math.min(TILE_SIZE, rows - (row & ~TILE_MASK))];
+            tiles[tileIndex] = tile;
+        }
+        // shift of a long uses only the lowest six bits, which is the column inside the tile
+        tile[row & TILE_MASK] |= 1L << column;
+    }
+
+    /**
+     * Opened fields of 64 columns starting at {@code tileColumn * 64} in the row, bit i is column {@code tileColumn * 64 + i}.
+     */
+    long getWord(final int row, final int tileColumn) {
+        long[] tile = tiles[(row >> TILE_SHIFT) * tileColumns + tileColumn];
+        return tile == null ? 0 : tile[row & TILE_MASK];
+    }
+
+    void setWord(final int row, final int tileColumn, final long word) {
+        int tileIndex = (row >> TILE_SHIFT) * tileColumns + tileColumn;
+        if (tiles[tileIndex] == null) {
+            if (word == 0) {
+                return;
+            }
+            tiles[tileIndex] = new long[Math.min(TILE_SIZE, rows - (row & ~TILE_MASK))];
+        }
+        tiles[tileIndex][row & TILE_MASK] = word;
+    }
+
+    int openedInRow(final int row) {
+        int opened = 0;
+        for (int tileColumn = 0; tileColumn < tileColumns; tileColumn++) {
+            opened += Long.bitCount(getWord(row, tileColumn));
+        }
+        return opened;
+    }
+
+    long allocatedBytes() {
+        long allocated = 0;
+        for (long[] tile : tiles) {
+            if (tile != null) {
+                allocated += (long) tile.length * Long.BYTES;
+            }
+        }
+        return allocated;
+    }
+
+    private int tileIndex(final int row, final int column) {
+        return (row >> TILE_SHIFT) * tileColumns + (column >> TILE_SHIFT);
+    }
+}
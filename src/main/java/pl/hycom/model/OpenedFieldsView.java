@@ -0,0 +1,82 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+import static pl.hycom.model.PackedCells.TILE_SHIFT;
+
+import java.nio.LongBuffer;
+
+/**
+ * Opened fields kept in a buffer owned by somebody else, usually memory outside of the heap: one long per 64 columns
+ * of a row, row after row. Reads and writes go straight to the buffer, nothing is copied.
+ */
+final class OpenedFieldsView extends OpenedFields {
+
+    private final LongBuffer words;
+
+    OpenedFieldsView(final int rows, final int columns, final LongBuffer words) {
+        super(rows, columns, false);
+        if (words.remaining() < words(rows, columns)) {
+            throw new IllegalArgumentException("Buffer of " + words.remaining() + " words is too small for a board " + rows + "x" + columns);
+        }
+        this.words = words.slice();
+    }
+
+    static int words(final int rows, final int columns) {
+        return rows * ((columns + PackedCells.TILE_MASK) >> TILE_SHIFT);
+    }
+
+    @Override
+    boolean isOpened(final int row, final int column) {
+        return (words.get(index(row, column >> TILE_SHIFT)) & (1L << column)) != 0;
+    }
+
+    @Override
+    void open(final int row, final int column) {
+        int index = index(row, column >> TILE_SHIFT);
+        words.put(index, words.get(index) | 1L << column);
+    }
+
+    @Override
+    long getWord(final int row, final int tileColumn) {
+        return words.get(index(row, tileColumn));
+    }
+
+    @Override
+    void setWord(final int row, final int tileColumn, final long word) {
+        words.put(index(row, tileColumn), word);
+    }
+
+    /**
+     * Nothing on the heap, the buffer is accounted by its owner.
+     */
+    @Override
+    long allocatedBytes() {
+        return 0;
+    }
+
+    private int index(final int row, final int tileColumn) {
+        return row * getTileColumns() + tileColumn;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+/**
+ * Packed storage of board fields - one byte per field instead of one object per field.
+ * The lower nibble keeps number of bombs around the field and the next bit marks the bomb.
+ * <p>
+ * Fields are grouped in tiles of 64x64 and a tile is allocated only when one of its fields is written
+ * (bomb placed or number of bombs set). Not allocated tiles read as fields without bombs,
+ * so a large board costs memory only for the parts which were actually touched.
+ */
+final class PackedCells {
+
+    static final int TILE_SHIFT = 6;
+
+    static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    static final int TILE_MASK = TILE_SIZE - 1;
+
+    private static final int BOMBS_AROUND = 0x0F;
+
+    private static final int BOMB = 0x10;
+
+    private final int rows;
+
+    private final int tileColumns;
+
+    private final byte[][] tiles;
+
+    PackedCells(final int rows, final int columns) {
+        this.rows = rows;
+        tileColumns = (columns + TILE_MASK) >> TILE_SHIFT;
+        tiles = new byte[((rows + TILE_MASK) >> TILE_SHIFT) * tileColumns][];
+    }
+
+    boolean hasBomb(final int row, final int column) {
+        return (get(row, column) & BOMB) != 0;
+    }
+
+    void setBomb(final int row, final int column) {
+        tile(row, column)[offset(row, column)] |= BOMB;
+    }
+
+    int getBombsAround(final int row, final int column) {
+        return get(row, column) & BOMBS_AROUND;
+    }
+
+    void setBombsAround(final int row, final int column, final int bombsAround) {
+        byte[] tile = tile(row, column);
+        int offset = offset(row, column);
+        tile[offset] = (byte) ((tile[offset] & ~BOMBS_AROUND) | bombsAround);
+    }
+
+    long allocatedBytes() {
+        long allocated = 0;
+        for (byte[] tile : tiles) {
+            if (tile != null) {
+                allocated += tile.length;
+            }
+        }
+        return allocated;
+    }
+
+    private int get(final int row, final int column) {
+        byte[] tile = tiles[tileIndex(row, column)];
+        return tile == null ? 0 : tile[offset(row, column)];
+    }
+
+    private byte[] tile(final int row, final int column) {
+        int tileIndex = tileIndex(row, column);
+        byte[] tile = tiles[tileIndex];
+        if (tile == null) {
+            // the last row of tiles is only as high as the board needs, so small boards don't pay for a whole tile
+            tile = new byte[Math.min(TILE_SIZE, rows - (row & ~TILE_MASK)) << TILE_SHIFT];
+            tiles[tileIndex] = tile;
+        }
+        return tile;
+    }
+
+    private int tileIndex(final int row, final int column) {
+        return (row >> TILE_SHIFT) * tileColumns + (column >> TILE_SHIFT);
+    }
+
+    private static int offset(final int row, final int column) {
+        return ((row & TILE_MASK) << TILE_SHIFT) | (column & TILE_MASK);
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+/**
+ * Fields opened by a single move, kept as flat indexes (row * columns + column) of the board.
+ */
+public final class RevealedCells {
+
+    public static final RevealedCells NONE = new RevealedCells(1, new int[0]);
+
+    private final int columns;
+
+    private final int[] indexes;
+
+    RevealedCells(final int columns, final int[] indexes) {
+        this.columns = columns;
+        this.indexes = indexes;
+    }
+
+    public int size() {
+        return indexes.length;
+    }
+
+    public boolean isEmpty() {
+        return indexes.length == 0;
+    }
+
+    public int getIndex(final int position) {
+        return indexes[position];
+    }
+
+    public int getRow(final int position) {
+        return indexes[position] / columns;
+    }
+
+    public int getColumn(final int position) {
+        return indexes[position] % columns;
+    }
+}
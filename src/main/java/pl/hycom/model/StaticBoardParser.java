@@ -0,0 +1,163 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import pl.hycom.exception.GameConfigurationException;
+
+/**
+ * Reads the static board written as text: one line per row, fields separated by spaces, 1 for a bomb and 0 for an
+ * empty field. The size of the board is taken from the file, all rows must have the same number of fields.
+ * <p>
+ * The parser works on raw bytes, small files are read into memory and large ones are memory mapped.
+ */
+final class StaticBoardParser {
+
+    private static final long MAP_THRESHOLD = 1 << 20;
+
+    private final String source;
+
+    // row and column of every bomb, the layout can be created only when the size of the board is known
+    private final IntQueue bombs = new IntQueue();
+
+    private int rows;
+
+    private int columns = -1;
+
+    private int column;
+
+    private int line = 1;
+
+    private int lineStart;
+
+    private StaticBoardParser(final String source) {
+        this.source = source;
+    }
+
+    static BoardLayout parse(final File file) throws GameConfigurationException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new GameConfigurationException("File [" + file + "] is too large, " + size + " bytes.");
+            }
+
+            ByteBuffer buffer;
+            if (size > MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // read the whole file
+                }
+                buffer.flip();
+            }
+
+            return parse(buffer, file.toString());
+        } catch (IOException e) {
+            throw new GameConfigurationException("Can't read file [" + file + "]: " + e.getMessage());
+        }
+    }
+
+    static BoardLayout parse(final ByteBuffer buffer, final String source) throws GameConfigurationException {
+        return new StaticBoardParser(source).read(buffer);
+    }
+
+    private BoardLayout read(final ByteBuffer buffer) throws GameConfigurationException {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        lineStart = start;
+
+        for (int i = start; i < limit; i++) {
+            byte character = buffer.get(i);
+
+            if (character == '0' || character == '1') {
+                if (i + 1 < limit && !isSeparator(buffer.get(i + 1))) {
+                    throw error("unexpected character [" + printable(buffer.get(i + 1)) + "]", i + 1);
+                }
+                if (columns >= 0 && column == columns) {
+                    throw error("more than " + columns + " fields in the row", i);
+                }
+                if (character == '1') {
+                    bombs.add(rows);
+                    bombs.add(column);
+                }
+                column++;
+            } else if (character == '\n') {
+                endLine(i);
+                line++;
+                lineStart = i + 1;
+            } else if (!isSeparator(character)) {
+                throw error("unexpected character [" + printable(character) + "]", i);
+            }
+        }
+        endLine(limit);
+
+        if (rows == 0) {
+            throw new GameConfigurationException("File [" + source + "] has no fields.");
+        }
+
+        BoardLayout layout = new BoardLayout(rows, columns, 0);
+        for (int i = 0; i < bombs.size(); i += 2) {
+            layout.putBomb(bombs.get(i), bombs.get(i + 1));
+        }
+        return layout;
+    }
+
+    private void endLine(final int position) throws GameConfigurationException {
+        if (column == 0) {
+            // blank lines are skipped
+            return;
+        }
+
+        if (columns < 0) {
+            columns = column;
+        } else if (column != columns) {
+            throw error(column + " fields in the row, expected " + columns, position);
+        }
+
+        if ((long) (rows + 1) * columns > Integer.MAX_VALUE) {
+            throw error("board can't have more than " + Integer.MAX_VALUE + " fields", position);
+        }
+
+        rows++;
+        column = 0;
+    }
+
+    private GameConfigurationException error(final String message, final int position) {
+        return new GameConfigurationException("File [" + source + "], line " + line + ", column " + (position - lineStart + 1) + ": " + message + ".");
+    }
+
+    private static boolean isSeparator(final byte character) {
+        return character == ' ' || character == '\t' || character == '\r' || character == '\n';
+    }
+
+    private static String printable(final byte character) {
+        return character >= 32 && character < 127 ? String.valueOf((char) character) : String.format("0x%02x", character);
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Level;
+
+/**
+ * Keeps boards generated in advance for every level, so starting a game doesn't wait for board generation.
+ * When a pool drops below the low watermark a background worker fills it up to the high watermark.
+ * If the pool is empty the board is generated on the caller thread and counted as a miss.
+ */
+@Slf4j
+@Component
+public class BoardPool {
+
+    @Value("${app.board-pool.depth:64}")
+    private int depth;
+
+    @Value("${app.board-pool.low-watermark:16}")
+    private int lowWatermark;
+
+    @Value("${app.board-pool.high-watermark:48}")
+    private int highWatermark;
+
+    @Value("${app.board-pool.workers:1}")
+    private int workers;
+
+    @Autowired
+    private BoardService boardService;
+
+    private final Map<Level, LevelPool> pools = new EnumMap<>(Level.class);
+
+    private ExecutorService refillExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        refillExecutor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "board-pool-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (Level level : Level.values()) {
+            pools.put(level, new LevelPool(depth));
+            refill(level);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        refillExecutor.shutdownNow();
+        refillExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public Board take(final Level level) throws GameConfigurationException {
+        LevelPool pool = pools.get(level);
+        Board board = pool.boards.poll();
+
+        if (pool.boards.size() < lowWatermark) {
+            refill(level);
+        }
+
+        if (board != null) {
+            pool.hits.incrementAndGet();
+            return board;
+        }
+
+        pool.misses.incrementAndGet();
+        return boardService.createBoard(level);
+    }
+
+    public Map<Level, Stats> stats() {
+        Map<Level, Stats> stats = new EnumMap<>(Level.class);
+        pools.forEach((level, pool) -> stats.put(level, new Stats(pool.boards.size(), pool.hits.get(), pool.misses.get(),
+                TimeUnit.NANOSECONDS.toMillis(pool.lastRefillLag.get()), TimeUnit.NANOSECONDS.toMillis(pool.maxRefillLag.get()))));
+        return stats;
+    }
+
+    private void refill(final Level level) {
+        LevelPool pool = pools.get(level);
+        if (!pool.refilling.compareAndSet(false, true)) {
+            return;
+        }
+
+        long triggered = System.nanoTime();
+        refillExecutor.execute(() -> {
+            try {
+                while (pool.boards.size() < highWatermark && pool.boards.offer(boardService.createBoard(level))) {
+                    // generate until the high watermark is reached
+                }
+
+                long lag = System.nanoTime() - triggered;
+                pool.lastRefillLag.set(lag);
+                pool.maxRefillLag.accumulateAndGet(lag, Math::max);
+            } catch (GameConfigurationException e) {
+                log.error("Can't generate board for level [" + level + "]", e);
+            } finally {
+                pool.refilling.set(false);
+            }
+        });
+    }
+
+    private static final class LevelPool {
+
+        private final BlockingQueue<Board> boards;
+
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        private final AtomicLong lastRefillLag = new AtomicLong();
+
+        private final AtomicLong maxRefillLag = new AtomicLong();
+
+        private LevelPool(final int depth) {
+            boards = new ArrayBlockingQueue<>(depth);
+        }
+    }
+
+    @lombok.Value
+    public static class Stats {
+
+        private int size;
+
+        private long hits;
+
+        private long misses;
+
+        /** Time from dropping below the low watermark to reaching the high watermark in the last refill. */
+        private long lastRefillLagMillis;
+
+        private long maxRefillLagMillis;
+    }
+}
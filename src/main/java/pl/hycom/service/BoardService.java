@@ -24,6 +24,7 @@
 package pl.hycom.service;
 
 import java.io.File;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.springframework.stereotype.Service;
 
@@ -31,33 +32,60 @@ import pl.hycom.exception.ActionException;
 import pl.hycom.exception.GameConfigurationException;
 import pl.hycom.model.Board;
 import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.model.BoardLayout;
 import pl.hycom.model.Level;
+import pl.hycom.model.RevealedCells;
 
 @Service
 public class BoardService {
 
+    private final LayoutCache layouts = new LayoutCache();
+
+    /**
+     * Creates the board from file. The file is parsed once, following games share its layout until the file changes.
+     */
     public Board createBoard(final File file) throws GameConfigurationException {
-        return BoardFactory.createStatic(file);
+        if (file == null) {
+            throw new GameConfigurationException("File is null");
+        }
+
+        String key = "file:" + file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length();
+        return BoardFactory.create(layouts.get(key, () -> BoardFactory.createStaticLayout(file)));
     }
 
     public Board createBoard(final Level level) throws GameConfigurationException {
+        return BoardFactory.create(createLayout(level, ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * Creates the board for level from the given seed, the same level and seed always give the same board.
+     * Games started with the same seed (e.g. in a tournament) share one layout.
+     */
+    public Board createBoard(final Level level, final long seed) throws GameConfigurationException {
+        return BoardFactory.create(layouts.get("level:" + level + ":" + seed, () -> createLayout(level, seed)));
+    }
+
+    private static BoardLayout createLayout(final Level level, final long seed) throws GameConfigurationException {
         if (level == Level.HARD) {
-            return BoardFactory.createRandom(13, 8);
+            return BoardFactory.createRandomLayout(13, 8, 8, seed);
         }
 
         if (level == Level.MEDIUM) {
-            return BoardFactory.createRandom(10, 8);
+            return BoardFactory.createRandomLayout(10, 8, 8, seed);
         }
 
-        return BoardFactory.createRandom(7, 8);
+        return BoardFactory.createRandomLayout(7, 8, 8, seed);
     }
 
-    public void action(final Board board, final int row, final int column) throws ActionException {
+    /**
+     * @return fields opened by the move
+     */
+    public RevealedCells action(final Board board, final int row, final int column) throws ActionException {
         if (board == null) {
             throw new ActionException("Game can't be null empty");
         }
 
-        board.check(row, column);
+        return board.check(row, column);
     }
 
 }
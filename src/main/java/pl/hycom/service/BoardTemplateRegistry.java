@@ -0,0 +1,223 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.model.BoardLayout;
+
+/**
+ * Board templates parsed once at startup, so starting a game from a template doesn't touch the disk.
+ * Templates are read from the classpath location and from the directory (if configured), templates from the directory
+ * win and are reloaded when the files change. Name of the template is the file name without extension,
+ * files with {@value #BINARY_EXTENSION} extension are read as binary boards, others as text.
+ */
+@Slf4j
+@Component
+public class BoardTemplateRegistry {
+
+    static final String BINARY_EXTENSION = ".saper";
+
+    @Value("${app.templates.classpath:classpath:file/*}")
+    private String classpathLocation;
+
+    @Value("${app.templates.directory:}")
+    private String directory;
+
+    private final Map<String, BoardLayout> templates = new ConcurrentHashMap<>();
+
+    // a template deleted from the directory falls back to the one of the same name from the classpath
+    private final Map<String, BoardLayout> classpathTemplates = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+
+    @PostConstruct
+    public void init() throws IOException {
+        loadClasspath();
+        templates.putAll(classpathTemplates);
+
+        if (StringUtils.isNotBlank(directory)) {
+            Path path = Paths.get(directory);
+            loadDirectory(path);
+            watch(path);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    public BoardLayout get(final String name) throws GameConfigurationException {
+        BoardLayout layout = templates.get(name);
+        if (layout == null) {
+            throw new GameConfigurationException("Board template [" + name + "] not found");
+        }
+        return layout;
+    }
+
+    private void loadClasspath() throws IOException {
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(classpathLocation)) {
+            String fileName = resource.getFilename();
+            if (fileName == null || !resource.isReadable()) {
+                continue;
+            }
+
+            try (InputStream input = resource.getInputStream()) {
+                classpathTemplates.put(templateName(fileName), parse(ByteBuffer.wrap(readAll(input)), fileName, resource.toString()));
+            } catch (GameConfigurationException | IOException e) {
+                log.warn("Board template [" + resource + "] skipped: " + e.getMessage());
+            }
+        }
+    }
+
+    private void unload(final String name) {
+        BoardLayout classpathLayout = classpathTemplates.get(name);
+        if (classpathLayout != null) {
+            templates.put(name, classpathLayout);
+        } else {
+            templates.remove(name);
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info("Board template [" + name + "] removed from the directory" + (classpathLayout != null ? ", classpath one restored" : ""));
+        }
+    }
+
+    private void loadDirectory(final Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            log.warn("Board templates directory [" + path + "] doesn't exist");
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+            for (Path file : files) {
+                load(file);
+            }
+        }
+    }
+
+    private void load(final Path file) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        String fileName = file.getFileName().toString();
+        try {
+            BoardLayout layout = fileName.endsWith(BINARY_EXTENSION)
+                    ? BoardFactory.createFromBinary(file.toFile()).getLayout()
+                    : BoardFactory.createStaticLayout(file.toFile());
+            templates.put(templateName(fileName), layout);
+
+            if (log.isInfoEnabled()) {
+                log.info("Board template [" + templateName(fileName) + "] loaded from [" + file + "]");
+            }
+        } catch (GameConfigurationException e) {
+            log.warn("Board template [" + file + "] skipped: " + e.getMessage());
+        }
+    }
+
+    private void watch(final Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return;
+        }
+
+        watchService = path.getFileSystem().newWatchService();
+        path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == ENTRY_DELETE) {
+                            unload(templateName(event.context().toString()));
+                        } else if (event.kind() != OVERFLOW) {
+                            load(path.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // registry is closing
+            }
+        }, "board-templates-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private static BoardLayout parse(final ByteBuffer buffer, final String fileName, final String source) throws GameConfigurationException {
+        if (fileName.endsWith(BINARY_EXTENSION)) {
+            return BoardFactory.createBinaryLayout(buffer);
+        }
+        return BoardFactory.createStaticLayout(buffer, source);
+    }
+
+    private static byte[] readAll(final InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = input.read(chunk)) >= 0) {
+            output.write(chunk, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    private static String templateName(final String fileName) {
+        int extension = fileName.lastIndexOf('.');
+        return extension > 0 ? fileName.substring(0, extension) : fileName;
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Expires games which were not accessed for the given time, checked on the monotonic clock.
+ * <p>
+ * Games are kept in a ring of buckets, one bucket per tick, and a game sits in the bucket of the tick it would expire at
+ * if nobody touches it. {@link #touch(long)} only stores the access time, the game is moved to a later bucket when
+ * its bucket comes up and it turns out not to be due yet. A tick visits only the buckets it passed, so idle games
+ * cost nothing until they expire and an active game is moved at most once per time to live.
+ */
+public final class ExpiryWheel {
+
+    private final long tickNanos;
+
+    private final List<Entry>[] buckets;
+
+    private final LongSupplier clock;
+
+    private final LongMap<Entry> entries = new LongMap<>();
+
+    private final Queue<Long> expiredNow = new ConcurrentLinkedQueue<>();
+
+    // next tick to process, guarded by this
+    private long cursor;
+
+    @SuppressWarnings("unchecked")
+    public ExpiryWheel(final long tickNanos, final int slots, final LongSupplier clock) {
+        this.tickNanos = tickNanos;
+        this.clock = clock;
+        buckets = new List[Integer.highestOneBit(slots - 1) << 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        cursor = clock.getAsLong() / tickNanos;
+    }
+
+    public void add(final long gameId, final long timeToLiveNanos) {
+        long now = clock.getAsLong();
+        Entry entry = new Entry(gameId, timeToLiveNanos, now);
+
+        Entry previous = entries.put(gameId, entry);
+        if (previous != null) {
+            previous.removed = true;
+        }
+
+        if (timeToLiveNanos <= 0) {
+            expire(gameId);
+        } else {
+            schedule(entry, now + timeToLiveNanos);
+        }
+    }
+
+    /**
+     * Records access to the game, it expires the time to live from now.
+     */
+    public void touch(final long gameId) {
+        Entry entry = entries.get(gameId);
+        if (entry != null) {
+            entry.lastAccess = clock.getAsLong();
+        }
+    }
+
+    /**
+     * Expires the game on the next tick, e.g. when it's over.
+     */
+    public void expire(final long gameId) {
+        expiredNow.add(gameId);
+    }
+
+    public void remove(final long gameId) {
+        Entry entry = entries.remove(gameId);
+        if (entry != null) {
+            entry.removed = true;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Advances the wheel to the current time and returns games expired since the last tick. Expired games are removed
+     * from the wheel.
+     */
+    public List<Long> tick() {
+        List<Long> expired = new ArrayList<>();
+
+        Long gameId;
+        while ((gameId = expiredNow.poll()) != null) {
+            Entry entry = entries.remove(gameId);
+            if (entry != null) {
+                entry.removed = true;
+                expired.add(gameId);
+            }
+        }
+
+        long now = clock.getAsLong();
+        long nowTick = now / tickNanos;
+
+        synchronized (this) {
+            for (; cursor <= nowTick; cursor++) {
+                List<Entry> bucket = buckets[(int) cursor & (buckets.length - 1)];
+                if (bucket.isEmpty()) {
+                    continue;
+                }
+
+                buckets[(int) cursor & (buckets.length - 1)] = new ArrayList<>();
+                for (Entry entry : bucket) {
+                    if (entry.removed) {
+                        continue;
+                    }
+
+                    long deadline = entry.lastAccess + entry.timeToLiveNanos;
+                    if (deadline <= now) {
+                        entry.removed = true;
+                        if (entries.remove(entry.gameId, entry)) {
+                            expired.add(entry.gameId);
+                        }
+                    } else {
+                        schedule(entry, deadline);
+                    }
+                }
+            }
+        }
+
+        return expired;
+    }
+
+    private synchronized void schedule(final Entry entry, final long deadline) {
+        // the first tick at or after the deadline, a deadline beyond the ring is rescheduled when its bucket comes up
+        long tick = Math.max((deadline + tickNanos - 1) / tickNanos, cursor);
+        buckets[(int) tick & (buckets.length - 1)].add(entry);
+    }
+
+    private static final class Entry {
+
+        private final long gameId;
+
+        private final long timeToLiveNanos;
+
+        private volatile long lastAccess;
+
+        private volatile boolean removed;
+
+        private Entry(final long gameId, final long timeToLiveNanos, final long lastAccess) {
+            this.gameId = gameId;
+            this.timeToLiveNanos = timeToLiveNanos;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Repository keeping every game in its own file, instances sharing the directory share the games. A file is read under
+ * a shared and written under an exclusive file lock, threads of this JVM are serialized with {@link GameLocks} first
+ * as file locks are held by the whole JVM.
+ * <p>
+ * File: magic (4) | version (8) | state length (4) | state | CRC32 of version, length and state (4). Files are
+ * rewritten in place and not forced to disk, a crashed instance loses nothing, a crashed machine may lose last moves.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.game-repository", havingValue = "file")
+public class FileGameRepository implements GameRepository {
+
+    private static final int MAGIC = 0x53414752;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int CRC_SIZE = 4;
+
+    private static final String SUFFIX = ".game";
+
+    // file locks belong to the whole JVM, so do these, also for several repositories in one JVM
+    private static final GameLocks LOCKS = new GameLocks(256);
+
+    @Value("${app.game-repository.directory:games}")
+    private String directory;
+
+    private Path path;
+
+    @PostConstruct
+    public void init() throws IOException {
+        path = Paths.get(directory);
+        Files.createDirectories(path);
+    }
+
+    @Override
+    public boolean create(final long gameId, final byte[] state) {
+        Lock lock = LOCKS.forGame(gameId);
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(file(gameId), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                FileLock fileLock = channel.lock()) {
+
+            write(channel, 1, state);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public StoredGame load(final long gameId) {
+        Lock lock = LOCKS.forGame(gameId);
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(file(gameId), StandardOpenOption.READ);
+                FileLock fileLock = channel.lock(0, Long.MAX_VALUE, true)) {
+
+            return read(channel, gameId);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(final long gameId, final long version, final byte[] state) {
+        Lock lock = LOCKS.forGame(gameId);
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(file(gameId), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileLock fileLock = channel.lock()) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getLong(4) != version) {
+                return false;
+            }
+
+            write(channel, version + 1, state);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(final long gameId) {
+        Lock lock = LOCKS.forGame(gameId);
+        lock.lock();
+        try {
+            Files.deleteIfExists(file(gameId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int removeIdle(final long idleMillis) {
+        long writtenBefore = System.currentTimeMillis() - idleMillis;
+
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long gameId = Long.parseUnsignedLong(name.substring(0, name.length() - SUFFIX.length()), 16);
+
+                if (Files.getLastModifiedTime(file).toMillis() < writtenBefore && removeIdle(gameId, file, writtenBefore)) {
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (removed > 0 && log.isInfoEnabled()) {
+            log.info("Removed " + removed + " idle games from [" + path + "]");
+        }
+        return removed;
+    }
+
+    private boolean removeIdle(final long gameId, final Path file, final long writtenBefore) throws IOException {
+        Lock lock = LOCKS.forGame(gameId);
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                FileLock fileLock = channel.lock()) {
+
+            // written by another instance since the directory was listed
+            if (Files.getLastModifiedTime(file).toMillis() >= writtenBefore) {
+                return false;
+            }
+            Files.delete(file);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Path file(final long gameId) {
+        return path.resolve(Long.toHexString(gameId) + SUFFIX);
+    }
+
+    private StoredGame read(final FileChannel channel, final long gameId) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            // created by another instance which didn't write it yet
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        readFully(channel, buffer);
+        if (size < HEADER_SIZE + CRC_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(12) != size - HEADER_SIZE - CRC_SIZE
+                || buffer.getInt((int) size - CRC_SIZE) != (int) crc(buffer.array(), (int) size - CRC_SIZE)) {
+            throw new IOException("Game file [" + file(gameId) + "] is corrupted");
+        }
+
+        byte[] state = new byte[(int) size - HEADER_SIZE - CRC_SIZE];
+        System.arraycopy(buffer.array(), HEADER_SIZE, state, 0, state.length);
+        return new StoredGame(buffer.getLong(4), state);
+    }
+
+    private static void write(final FileChannel channel, final long version, final byte[] state) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + state.length + CRC_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putLong(version);
+        buffer.putInt(state.length);
+        buffer.put(state);
+        buffer.putInt((int) crc(buffer.array(), buffer.position()));
+        buffer.flip();
+
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.truncate(position);
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // until the buffer is full or the file ends
+        }
+    }
+
+    private static long crc(final byte[] bytes, final int end) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 4, end - 4);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,453 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.hycom.model.MoveResultDTO;
+import pl.hycom.model.State;
+
+/**
+ * Server-sent events of games: {@code move} with fields opened by moves made on this instance, {@code expired} when
+ * the game is removed and {@code lagged} for a subscriber which didn't keep up. The stream ends after the game is won,
+ * lost or removed.
+ * <p>
+ * Publishing only puts the event into a bounded queue of every subscriber, sender threads write the queues out. A
+ * subscriber whose queue is full gets {@code lagged} and is closed, it has to load the board again - a slow client
+ * never holds up moves. A {@link EventSink sink} which isn't {@link EventSink#ready() ready} keeps its events in the
+ * queue until it {@link Subscription#resume() asks} for more.
+ * <p>
+ * Servlet writes block and an SSE sink is always ready, so a client which stops reading pins a sender thread. A write
+ * taking longer than {@code app.events.write-timeout} drops its subscriber: the sender is interrupted and, as a
+ * blocked socket write may ignore that, the pool gets one more thread until the write returns - other subscribers
+ * keep getting their events.
+ */
+@Slf4j
+@Component
+public class GameEvents {
+
+    @Value("${app.events.queue-size:64}")
+    private int queueSize = 64;
+
+    @Value("${app.events.timeout:1800000}")
+    private long timeoutMillis = 1_800_000;
+
+    @Value("${app.events.workers:2}")
+    private int workers = 2;
+
+    @Value("${app.events.write-timeout:10000}")
+    private long writeTimeoutMillis = 10_000;
+
+    // copy on write, so publishing reads the array without locking
+    private final LongMap<Subscriber[]> subscribers = new LongMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    // subscribers in the middle of a write, checked by the watchdog; dropped ones may still be writing their last event
+    private final Set<Subscriber> writing = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor senders;
+
+    private ScheduledExecutorService watchdog;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "game-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-events-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, writeTimeoutMillis / 4);
+        watchdog.scheduleAtFixedRate(this::dropStuckSubscribers, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        watchdog.shutdownNow();
+        senders.shutdownNow();
+        senders.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public SseEmitter subscribe(final long gameId) {
+        SseEmitter emitter = createEmitter(timeoutMillis);
+        Subscription subscription = subscribe(gameId, new EventSink() {
+
+            @Override
+            public void send(final String name, final Object data) throws IOException {
+                emitter.send(SseEmitter.event().name(name).data(data));
+            }
+
+            @Override
+            public void complete() {
+                emitter.complete();
+            }
+
+            @Override
+            public void fail(final Throwable e) {
+                emitter.completeWithError(e);
+            }
+        });
+
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    public Subscription subscribe(final long gameId, final EventSink sink) {
+        Subscriber subscriber = new Subscriber(gameId, sink);
+        add(subscriber);
+        return subscriber;
+    }
+
+    protected SseEmitter createEmitter(final long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    public boolean hasSubscribers(final long gameId) {
+        return subscribers.get(gameId) != null;
+    }
+
+    /**
+     * @return open streams of all games
+     */
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public void moved(final long gameId, final MoveResultDTO result) {
+        publish(gameId, new Event("move", result, result.getState() != State.ACTIVE));
+    }
+
+    public void expired(final long gameId) {
+        publish(gameId, new Event("expired", GameIds.format(gameId), true));
+    }
+
+    private void publish(final long gameId, final Event event) {
+        Subscriber[] current = subscribers.get(gameId);
+        if (current == null) {
+            return;
+        }
+
+        for (Subscriber subscriber : current) {
+            subscriber.offer(event);
+        }
+    }
+
+    private void dropStuckSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : writing) {
+            if (subscriber.writeTimedOut(now)) {
+                if (log.isInfoEnabled()) {
+                    log.info("Events of game [" + GameIds.format(subscriber.gameId) + "] not written in " + writeTimeoutMillis + " ms, subscriber dropped");
+                }
+                // dropped before the pool grows, the new sender must not find it still subscribed
+                subscriber.close();
+                resizeSenders(1);
+            }
+        }
+    }
+
+    // a sender stuck in a write is replaced by one more thread until the write returns
+    private void resizeSenders(final int delta) {
+        synchronized (senders) {
+            if (delta > 0) {
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+                senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            } else {
+                senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    private void add(final Subscriber subscriber) {
+        while (true) {
+            Subscriber[] current = subscribers.get(subscriber.gameId);
+            if (current == null) {
+                if (subscribers.putIfAbsent(subscriber.gameId, new Subscriber[] { subscriber }) == null) {
+                    break;
+                }
+            } else {
+                Subscriber[] next = Arrays.copyOf(current, current.length + 1);
+                next[current.length] = subscriber;
+                if (subscribers.replace(subscriber.gameId, current, next)) {
+                    break;
+                }
+            }
+        }
+        subscriberCount.incrementAndGet();
+    }
+
+    private void remove(final Subscriber subscriber) {
+        subscriber.closed = true;
+        while (true) {
+            Subscriber[] current = subscribers.get(subscriber.gameId);
+            int index = current == null ? -1 : Arrays.asList(current).indexOf(subscriber);
+            if (index < 0) {
+                return;
+            }
+
+            if (current.length == 1) {
+                if (subscribers.remove(subscriber.gameId, current)) {
+                    break;
+                }
+            } else {
+                Subscriber[] next = new Subscriber[current.length - 1];
+                System.arraycopy(current, 0, next, 0, index);
+                System.arraycopy(current, index + 1, next, index, next.length - index);
+                if (subscribers.replace(subscriber.gameId, current, next)) {
+                    break;
+                }
+            }
+        }
+        subscriberCount.decrementAndGet();
+    }
+
+    private static final class Event {
+
+        private static final Event LAGGED = new Event("lagged", "", true);
+
+        private final String name;
+
+        private final Object data;
+
+        private final boolean last;
+
+        private Event(final String name, final Object data, final boolean last) {
+            this.name = name;
+            this.data = data;
+            this.last = last;
+        }
+    }
+
+    /**
+     * Connection of a subscriber, events are sent to it from the sender threads one at a time.
+     */
+    public interface EventSink {
+
+        void send(String name, Object data) throws IOException;
+
+        void complete();
+
+        void fail(Throwable e);
+
+        /**
+         * @return false while the client can't take more events
+         */
+        default boolean ready() {
+            return true;
+        }
+    }
+
+    public interface Subscription {
+
+        void cancel();
+
+        /**
+         * Sends the events held back while the sink wasn't ready.
+         */
+        void resume();
+    }
+
+    private final class Subscriber implements Subscription, Runnable {
+
+        private final long gameId;
+
+        private final EventSink sink;
+
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueSize);
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        // set by the publisher when the queue overflowed, the sender sends lagged and ends the stream
+        private volatile boolean lagged;
+
+        // the stream was ended, touched only by the sender which holds the scheduled flag
+        private boolean finished;
+
+        // thread in the middle of a write and since when, guarded by this
+        private Thread sender;
+
+        private long sendingSince;
+
+        private boolean stuck;
+
+        private Subscriber(final long gameId, final EventSink sink) {
+            this.gameId = gameId;
+            this.sink = sink;
+        }
+
+        @Override
+        public void cancel() {
+            remove(this);
+        }
+
+        @Override
+        public void resume() {
+            if ((lagged || !queue.isEmpty()) && scheduled.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        private void offer(final Event event) {
+            if (closed) {
+                return;
+            }
+
+            if (!queue.offer(event)) {
+                // the client is too slow, it's dropped instead of holding the events back - only the sender takes
+                // from the queue, so it's the one to drop the events and send lagged
+                lagged = true;
+                closed = true;
+                remove(this);
+            }
+            resume();
+        }
+
+        private void close() {
+            closed = true;
+            remove(this);
+        }
+
+        private void send(final Event event) throws IOException {
+            synchronized (this) {
+                sender = Thread.currentThread();
+                sendingSince = System.nanoTime();
+            }
+            writing.add(this);
+
+            boolean timedOut;
+            try {
+                sink.send(event.name, event.data);
+            } finally {
+                writing.remove(this);
+                synchronized (this) {
+                    sender = null;
+                    timedOut = stuck;
+                }
+                if (timedOut) {
+                    // the interrupt was meant for the write, not for the next task of this thread
+                    Thread.interrupted();
+                    resizeSenders(-1);
+                }
+            }
+
+            if (timedOut) {
+                throw new InterruptedIOException("Write took longer than " + writeTimeoutMillis + " ms");
+            }
+        }
+
+        /**
+         * Marks the write in progress as stuck when it takes longer than the write timeout and interrupts it.
+         */
+        private synchronized boolean writeTimedOut(final long now) {
+            if (sender == null || stuck || now - sendingSince < TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis)) {
+                return false;
+            }
+            stuck = true;
+            sender.interrupt();
+            return true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (finished) {
+                    return;
+                }
+
+                // the last event goes out even to a sink which isn't ready, the stream ends with it
+                for (Event event = queue.peek(); event != null && !closed && (event.last || sink.ready()); event = queue.peek()) {
+                    queue.poll();
+                    send(event);
+                    if (event.last) {
+                        finished = true;
+                        close();
+                        sink.complete();
+                        return;
+                    }
+                }
+
+                if (lagged) {
+                    finished = true;
+                    queue.clear();
+                    send(Event.LAGGED);
+                    sink.complete();
+                    return;
+                }
+            } catch (IOException e) {
+                if (log.isInfoEnabled()) {
+                    log.info("Events of game [" + GameIds.format(gameId) + "] not delivered: " + e.getMessage());
+                }
+                finished = true;
+                close();
+                sink.fail(e);
+                return;
+            } catch (IllegalStateException e) {
+                // completed by timeout or by the client going away
+                finished = true;
+                close();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+
+            // an event or the overflow which came after the queue was drained and before the flag was cleared
+            if (lagged || !closed && sink.ready()) {
+                resume();
+            }
+        }
+    }
+}
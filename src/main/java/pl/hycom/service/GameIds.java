@@ -0,0 +1,123 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pl.hycom.exception.GameNotFoundException;
+
+/**
+ * Generates 64 bit game ids and their short base62 form used in the session and urls.
+ * <p>
+ * Ids are a counter passed through a four round Feistel network keyed with random keys drawn once at startup, so
+ * following ids look unrelated and can't be guessed from each other, while creating a game costs a few multiplications
+ * instead of a call to {@link SecureRandom}. The network is a permutation, so ids never repeat within one run.
+ */
+public final class GameIds {
+
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private static final int BASE = DIGITS.length;
+
+    private static final int MAX_LENGTH = 11;
+
+    private static final int ROUNDS = 4;
+
+    private final long[] keys = new long[ROUNDS];
+
+    private final AtomicLong counter = new AtomicLong();
+
+    public GameIds() {
+        this(new SecureRandom());
+    }
+
+    public GameIds(final Random random) {
+        for (int i = 0; i < ROUNDS; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    public long next() {
+        return permute(counter.getAndIncrement());
+    }
+
+    long permute(final long value) {
+        int left = (int) (value >>> 32);
+        int right = (int) value;
+        for (long key : keys) {
+            int next = left ^ round(right, key);
+            left = right;
+            right = next;
+        }
+        return (long) left << 32 | right & 0xFFFFFFFFL;
+    }
+
+    private static int round(final int half, final long key) {
+        long mixed = (half ^ key) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ mixed >>> 27) * 0x94D049BB133111EBL;
+        return (int) (mixed ^ mixed >>> 31);
+    }
+
+    public static String format(final long id) {
+        char[] token = new char[MAX_LENGTH];
+        int position = MAX_LENGTH;
+        long remaining = id;
+        do {
+            token[--position] = DIGITS[(int) Long.remainderUnsigned(remaining, BASE)];
+            remaining = Long.divideUnsigned(remaining, BASE);
+        } while (remaining != 0);
+        return new String(token, position, MAX_LENGTH - position);
+    }
+
+    public static long parse(final String token) throws GameNotFoundException {
+        if (token == null || token.isEmpty() || token.length() > MAX_LENGTH) {
+            throw new GameNotFoundException("Game with id[" + token + "] not found");
+        }
+
+        long id = 0;
+        for (int i = 0; i < token.length(); i++) {
+            int digit = digit(token.charAt(i));
+            if (digit < 0 || Long.compareUnsigned(id, Long.divideUnsigned(-1L - digit, BASE)) > 0) {
+                throw new GameNotFoundException("Game with id[" + token + "] not found");
+            }
+            id = id * BASE + digit;
+        }
+        return id;
+    }
+
+    private static int digit(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,689 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+
+/**
+ * Append-only journal of games, so games in progress survive a restart. Disabled by default, enable it with
+ * {@code app.journal.enabled=true}.
+ * <p>
+ * Every game gets a small journal number when it's created and following records refer to it:
+ * <pre>
+ * CREATED number | game id | board without opened fields
+ * MOVED   number | row | column
+ * REMOVED number
+ * </pre>
+ * Numbers are written as var ints, so a move takes 4-7 bytes. Records are written in frames
+ * {@code length (int) | crc32 (int) | records} by a single writer thread: records appended while the previous frame
+ * was forced to disk go together to the next one, so one fsync serves all moves waiting at the moment (group commit).
+ * A frame torn by a crash doesn't match its checksum and is skipped with the rest of its segment - it was never
+ * acknowledged to the player anyway.
+ * <p>
+ * Snapshot starts a new segment and writes all games with their opened fields, older segments and snapshots are
+ * deleted afterwards. Recovery reads the latest snapshot and replays segments written after it. Replaying a move
+ * which is already in the snapshot only opens opened fields again, so games changed while the snapshot is written
+ * are restored correctly.
+ */
+@Slf4j
+@Component
+public class GameJournal {
+
+    private static final byte CREATED = 1;
+
+    private static final byte MOVED = 2;
+
+    private static final byte REMOVED = 3;
+
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private static final int SNAPSHOT_MAGIC = 0x534E4150;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    @Value("${app.journal.enabled:false}")
+    private volatile boolean enabled;
+
+    @Value("${app.journal.directory:journal}")
+    private String directory;
+
+    @Value("${app.journal.segment-size:16777216}")
+    private long segmentSize;
+
+    private final LongLongMap numbers = new LongLongMap();
+
+    private final AtomicInteger nextNumber = new AtomicInteger();
+
+    /**
+     * Appending a record and applying it to the game hold the read lock, starting a new segment for the snapshot holds
+     * the write lock - every record in segments before the snapshot is already applied to the game it snapshots.
+     */
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+    private final Object lock = new Object();
+
+    private RecordBuffer pending = new RecordBuffer();
+
+    private long appended;
+
+    // records up to this one are waited for, the writer doesn't start a frame for records nobody waits for yet
+    private long submitted;
+
+    private long durable;
+
+    private boolean closed;
+
+    private final Object channelLock = new Object();
+
+    private Path path;
+
+    private long segment;
+
+    private FileChannel channel;
+
+    private Thread writer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        path = Paths.get(directory);
+        Files.createDirectories(path);
+
+        List<Long> segments = indexes(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+        channel = openSegment(segment);
+
+        writer = new Thread(this::writeFrames, "game-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException, IOException {
+        if (writer == null) {
+            return;
+        }
+
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        writer.join();
+        channel.close();
+    }
+
+    public void created(final long gameId, final Board board, final Runnable register) {
+        if (!enabled) {
+            register.run();
+            return;
+        }
+
+        ByteArrayOutputStream boardBytes = new ByteArrayOutputStream();
+        try {
+            board.export(boardBytes, false);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        int number = nextNumber.getAndIncrement();
+        numbers.put(gameId, number);
+
+        long sequence;
+        segmentLock.readLock().lock();
+        try {
+            synchronized (lock) {
+                pending.write(CREATED);
+                pending.writeVarInt((int) number);
+                pending.writeLong(gameId);
+                pending.writeVarInt(boardBytes.size());
+                pending.write(boardBytes.toByteArray(), 0, boardBytes.size());
+                sequence = append();
+            }
+            register.run();
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Writes the move and applies it. Returns after the move is on disk, even when applying it failed - a move which
+     * hits a bomb is replayed the same way.
+     */
+    public <T, E extends Exception> T moved(final long gameId, final int row, final int column, final Mutation<T, E> move) throws E {
+        MoveBatch batch = batch(gameId);
+        try {
+            return batch.moved(row, column, move);
+        } finally {
+            batch.await();
+        }
+    }
+
+    /**
+     * Moves of one game written together: every move is appended before it's applied, {@link MoveBatch#await()} waits
+     * for the disk once, so the whole batch goes out in one frame with one fsync.
+     */
+    public MoveBatch batch(final long gameId) {
+        return new MoveBatch(enabled ? numbers.get(gameId) : LongLongMap.NO_VALUE);
+    }
+
+    /**
+     * Writes removal of the game without waiting for the disk - a removed game which comes back after a crash is
+     * removed again by the next expiry check.
+     */
+    public void removed(final long gameId, final Runnable remove) {
+        long number = enabled ? numbers.remove(gameId) : LongLongMap.NO_VALUE;
+        if (number == LongLongMap.NO_VALUE) {
+            remove.run();
+            return;
+        }
+
+        segmentLock.readLock().lock();
+        try {
+            synchronized (lock) {
+                pending.write(REMOVED);
+                pending.writeVarInt((int) number);
+                append();
+            }
+            remove.run();
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds games from the latest snapshot and segments written after it. Has to be called before any game is
+     * created.
+     */
+    public LongMap<Board> recover() throws IOException {
+        LongMap<Board> games = new LongMap<>();
+        if (!enabled) {
+            return games;
+        }
+
+        long start = System.nanoTime();
+        Map<Integer, Long> gameIds = new HashMap<>();
+
+        List<Long> snapshots = indexes(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long firstSegment = 0;
+        if (!snapshots.isEmpty()) {
+            firstSegment = snapshots.get(snapshots.size() - 1);
+            readSnapshot(path.resolve(SNAPSHOT_PREFIX + firstSegment + SNAPSHOT_SUFFIX), gameIds, games);
+        }
+
+        for (long index : indexes(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (index >= firstSegment && index < segment) {
+                replaySegment(path.resolve(SEGMENT_PREFIX + index + SEGMENT_SUFFIX), gameIds, games);
+            }
+        }
+
+        int maxNumber = -1;
+        for (Map.Entry<Integer, Long> entry : gameIds.entrySet()) {
+            maxNumber = Math.max(maxNumber, entry.getKey());
+            if (games.get(entry.getValue()) != null) {
+                numbers.put(entry.getValue(), entry.getKey());
+            }
+        }
+        nextNumber.set(maxNumber + 1);
+
+        if (log.isInfoEnabled()) {
+            log.info("Recovered " + games.size() + " games from journal in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return games;
+    }
+
+    /**
+     * Writes all games of the stores to a new snapshot and deletes segments and snapshots it replaces. Every board is
+     * read under its game lock, the same one moves are applied under.
+     */
+    public void snapshot(final List<GameStore> stores, final GameLocks locks) throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        long firstSegment;
+        segmentLock.writeLock().lock();
+        try {
+            synchronized (channelLock) {
+                firstSegment = roll();
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+
+        Path temporary = path.resolve(SNAPSHOT_PREFIX + firstSegment + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))) {
+
+            RecordBuffer entry = new RecordBuffer();
+            ByteArrayOutputStream boardBytes = new ByteArrayOutputStream();
+            output.writeInt(SNAPSHOT_MAGIC);
+            for (GameStore store : stores) {
+                store.forEach((gameId, found) -> {
+                    try {
+                        writeGame(store, gameId, locks, boardBytes, entry, output);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            output.flush();
+            file.getFD().sync();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Files.move(temporary, path.resolve(SNAPSHOT_PREFIX + firstSegment + SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+
+        for (long index : indexes(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (index < firstSegment) {
+                Files.delete(path.resolve(SEGMENT_PREFIX + index + SEGMENT_SUFFIX));
+            }
+        }
+        for (long index : indexes(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (index < firstSegment) {
+                Files.delete(path.resolve(SNAPSHOT_PREFIX + index + SNAPSHOT_SUFFIX));
+            }
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info("Journal snapshot of " + stores.stream().mapToInt(GameStore::size).sum() + " games written, segments before " + firstSegment + " deleted");
+        }
+    }
+
+    /**
+     * The board is read again under the game lock, the game may have expired since the store listed it.
+     */
+    private void writeGame(final GameStore store, final long gameId, final GameLocks locks, final ByteArrayOutputStream boardBytes,
+            final RecordBuffer entry, final DataOutputStream output) throws IOException {
+        long number;
+        boardBytes.reset();
+        Lock lock = locks.forGame(gameId);
+        lock.lock();
+        try {
+            number = numbers.get(gameId);
+            Board board = store.get(gameId);
+            if (number == LongLongMap.NO_VALUE || board == null) {
+                return;
+            }
+            board.export(boardBytes, true);
+        } finally {
+            lock.unlock();
+        }
+
+        entry.reset();
+        entry.writeVarInt((int) number);
+        entry.writeLong(gameId);
+        entry.writeVarInt(boardBytes.size());
+        entry.writeTo(output);
+        boardBytes.writeTo(output);
+    }
+
+    private long append() {
+        appended++;
+        submitted = appended;
+        lock.notifyAll();
+        return appended;
+    }
+
+    private void awaitDurable(final long sequence) {
+        synchronized (lock) {
+            if (submitted < sequence) {
+                submitted = sequence;
+                lock.notifyAll();
+            }
+            while (durable < sequence && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void writeFrames() {
+        RecordBuffer spare = new RecordBuffer();
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        long taken = 0;
+
+        while (true) {
+            RecordBuffer frame;
+            long frameEnd;
+            synchronized (lock) {
+                while ((pending.size() == 0 || submitted <= taken) && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+
+                frame = pending;
+                frameEnd = appended;
+                taken = frameEnd;
+                pending = spare;
+            }
+
+            crc.reset();
+            crc.update(frame.array(), 0, frame.size());
+            header.clear();
+            header.putInt(frame.size()).putInt((int) crc.getValue()).flip();
+
+            try {
+                synchronized (channelLock) {
+                    FileChannel target = channel;
+                    ByteBuffer records = ByteBuffer.wrap(frame.array(), 0, frame.size());
+                    while (header.hasRemaining() || records.hasRemaining()) {
+                        target.write(new ByteBuffer[] { header, records });
+                    }
+                    target.force(false);
+
+                    if (target.position() >= segmentSize) {
+                        roll();
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Journal write failed, journal is disabled", e);
+                enabled = false;
+                synchronized (lock) {
+                    closed = true;
+                    lock.notifyAll();
+                }
+                return;
+            }
+
+            frame.reset();
+            spare = frame;
+            synchronized (lock) {
+                durable = frameEnd;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Closes the current segment and starts the next one. Called under the channel lock.
+     */
+    private long roll() throws IOException {
+        FileChannel previous = channel;
+        segment++;
+        channel = openSegment(segment);
+        previous.close();
+        return segment;
+    }
+
+    private FileChannel openSegment(final long index) throws IOException {
+        return FileChannel.open(path.resolve(SEGMENT_PREFIX + index + SEGMENT_SUFFIX), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private List<Long> indexes(final String prefix, final String suffix) throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                indexes.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+            }
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    private static void readSnapshot(final Path file, final Map<Integer, Long> gameIds, final LongMap<Board> games) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Snapshot [" + file + "] has wrong header");
+            }
+
+            while (buffer.hasRemaining()) {
+                int number = readVarInt(buffer);
+                long gameId = buffer.getLong();
+                games.put(gameId, readBoard(buffer));
+                gameIds.put(number, gameId);
+            }
+        } catch (GameConfigurationException | RuntimeException e) {
+            throw new IOException("Snapshot [" + file + "] is corrupted", e);
+        }
+    }
+
+    private static void replaySegment(final Path file, final Map<Integer, Long> gameIds, final LongMap<Board> games) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32 crc = new CRC32();
+
+        while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                log.warn("Journal segment [" + file + "] ends with a torn frame");
+                return;
+            }
+
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Journal segment [" + file + "] ends with a torn frame");
+                return;
+            }
+
+            ByteBuffer frame = buffer.slice();
+            frame.limit(length);
+            buffer.position(buffer.position() + length);
+
+            try {
+                replayFrame(frame, gameIds, games);
+            } catch (GameConfigurationException | RuntimeException e) {
+                throw new IOException("Journal segment [" + file + "] is corrupted", e);
+            }
+        }
+    }
+
+    private static void replayFrame(final ByteBuffer frame, final Map<Integer, Long> gameIds, final LongMap<Board> games) throws GameConfigurationException {
+        while (frame.hasRemaining()) {
+            byte type = frame.get();
+            int number = readVarInt(frame);
+
+            if (type == CREATED) {
+                long gameId = frame.getLong();
+                games.put(gameId, readBoard(frame));
+                gameIds.put(number, gameId);
+
+            } else if (type == MOVED) {
+                int row = unZigZag(readVarInt(frame));
+                int column = unZigZag(readVarInt(frame));
+                Long gameId = gameIds.get(number);
+                Board board = gameId == null ? null : games.get(gameId);
+                if (board != null) {
+                    try {
+                        board.check(row, column);
+                    } catch (ActionException e) {
+                        // the move failed the game the first time as well
+                    }
+                }
+
+            } else if (type == REMOVED) {
+                Long gameId = gameIds.get(number);
+                if (gameId != null) {
+                    games.remove(gameId);
+                }
+
+            } else {
+                throw new GameConfigurationException("Unknown journal record type " + type);
+            }
+        }
+    }
+
+    private static Board readBoard(final ByteBuffer buffer) throws GameConfigurationException {
+        int length = readVarInt(buffer);
+        ByteBuffer board = buffer.slice();
+        board.limit(length);
+        buffer.position(buffer.position() + length);
+        return BoardFactory.createFromBinary(board);
+    }
+
+    private static int readVarInt(final ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Var int is too long");
+    }
+
+    private static int zigZag(final int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @FunctionalInterface
+    public interface Mutation<T, E extends Exception> {
+
+        T apply() throws E;
+    }
+
+    public final class MoveBatch {
+
+        private final long number;
+
+        private long sequence;
+
+        private MoveBatch(final long number) {
+            this.number = number;
+        }
+
+        /**
+         * Writes the move and applies it without waiting for the disk.
+         */
+        public <T, E extends Exception> T moved(final int row, final int column, final Mutation<T, E> move) throws E {
+            if (number == LongLongMap.NO_VALUE) {
+                return move.apply();
+            }
+
+            segmentLock.readLock().lock();
+            try {
+                synchronized (lock) {
+                    pending.write(MOVED);
+                    pending.writeVarInt((int) number);
+                    pending.writeVarInt(zigZag(row));
+                    pending.writeVarInt(zigZag(column));
+                    sequence = ++appended;
+                }
+                return move.apply();
+            } finally {
+                segmentLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Returns after all moves of the batch are on disk.
+         */
+        public void await() {
+            if (sequence > 0) {
+                awaitDurable(sequence);
+            }
+        }
+    }
+
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        private RecordBuffer() {
+            super(4096);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+
+        private void writeVarInt(final int value) {
+            int remaining = value;
+            while ((remaining & ~0x7F) != 0) {
+                write((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            write(remaining);
+        }
+
+        private void writeLong(final long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+    }
+}
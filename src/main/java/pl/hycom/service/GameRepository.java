@@ -0,0 +1,69 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+/**
+ * Game state shared by all application instances, selected with {@code app.game-repository} - {@code memory} keeps it
+ * in this JVM, {@code file} in a directory which may be shared by several instances. Without a repository games live
+ * only in the {@link GameStore} of the instance which created them.
+ * <p>
+ * State is the packed board with its opened fields, every write bumps the version and succeeds only when the caller
+ * saw the latest one, so two instances making moves in one game never overwrite each other.
+ */
+public interface GameRepository {
+
+    /**
+     * @return false when there is already a game with this id
+     */
+    boolean create(long gameId, byte[] state);
+
+    /**
+     * @return the game or null when there is no such game, its state must not be changed
+     */
+    StoredGame load(long gameId);
+
+    /**
+     * Writes the state with the next version when the game is still at the given one.
+     *
+     * @return false when the game was changed or removed in the meantime
+     */
+    boolean compareAndSet(long gameId, long version, byte[] state);
+
+    void remove(long gameId);
+
+    /**
+     * Removes games not written for the given time.
+     *
+     * @return number of removed games
+     */
+    int removeIdle(long idleMillis);
+
+    @lombok.Value
+    class StoredGame {
+
+        private long version;
+
+        private byte[] state;
+    }
+}
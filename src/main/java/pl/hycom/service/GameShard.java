@@ -0,0 +1,179 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pl.hycom.model.Board;
+
+/**
+ * Part of the games selected by game id hash, with its own store, expiry wheel and counters. Nothing is shared
+ * between shards, so they are swept in parallel.
+ */
+public final class GameShard {
+
+    private final GameStore store;
+
+    private final ExpiryWheel expiry;
+
+    // versions of boards read from the GameRepository, the store is only a cache of it then
+    private final LongLongMap versions = new LongLongMap();
+
+    private final AtomicLong added = new AtomicLong();
+
+    private final AtomicLong moves = new AtomicLong();
+
+    private final AtomicLong expired = new AtomicLong();
+
+    private volatile long lastSweepNanos;
+
+    private volatile long maxSweepNanos;
+
+    public GameShard(final GameStore store, final ExpiryWheel expiry) {
+        this.store = store;
+        this.expiry = expiry;
+    }
+
+    public GameStore store() {
+        return store;
+    }
+
+    public void add(final long gameId, final Board board, final long timeToLiveNanos) {
+        store.put(gameId, board);
+        expiry.add(gameId, timeToLiveNanos);
+        added.incrementAndGet();
+    }
+
+    /**
+     * @return the board or null when there is no such game, a found game expires later
+     */
+    public Board get(final long gameId) {
+        Board board = store.get(gameId);
+        if (board != null) {
+            expiry.touch(gameId);
+        }
+        return board;
+    }
+
+    /**
+     * @return board which may be read without the game lock or null when there is no such game, see
+     *         {@link GameStore#copy(long)}
+     */
+    public Board copy(final long gameId) {
+        Board board = store.copy(gameId);
+        if (board != null) {
+            expiry.touch(gameId);
+        }
+        return board;
+    }
+
+    /**
+     * Keeps the board read from or written to the repository at the given version.
+     */
+    public void cache(final long gameId, final Board board, final long version, final long timeToLiveNanos) {
+        if (versions.put(gameId, version) == LongLongMap.NO_VALUE) {
+            add(gameId, board, timeToLiveNanos);
+        } else {
+            store.put(gameId, board);
+            expiry.touch(gameId);
+        }
+    }
+
+    /**
+     * @return version of the cached board or {@link LongLongMap#NO_VALUE} when it has to be read from the repository
+     */
+    public long cachedVersion(final long gameId) {
+        return versions.get(gameId);
+    }
+
+    /**
+     * Drops the cached board, e.g. after another instance changed the game.
+     */
+    public void evict(final long gameId) {
+        versions.remove(gameId);
+        store.remove(gameId);
+        expiry.remove(gameId);
+    }
+
+    /**
+     * Forgets the game after it expired.
+     */
+    public void remove(final long gameId) {
+        versions.remove(gameId);
+        store.remove(gameId);
+    }
+
+    public void moved(final long gameId, final int count, final boolean finished) {
+        moves.addAndGet(count);
+        if (finished) {
+            expiry.expire(gameId);
+        }
+    }
+
+    /**
+     * @return ids of games which expired since the last sweep, they still have to be removed from the store
+     */
+    public List<Long> sweep() {
+        long start = System.nanoTime();
+        List<Long> expiredGames = expiry.tick();
+        expired.addAndGet(expiredGames.size());
+
+        long sweepNanos = System.nanoTime() - start;
+        lastSweepNanos = sweepNanos;
+        if (sweepNanos > maxSweepNanos) {
+            maxSweepNanos = sweepNanos;
+        }
+        return expiredGames;
+    }
+
+    public Stats stats() {
+        return new Stats(store.size(), expiry.size(), added.get(), moves.get(), expired.get(), store.getAllocatedBytes(),
+                TimeUnit.NANOSECONDS.toMicros(lastSweepNanos), TimeUnit.NANOSECONDS.toMicros(maxSweepNanos));
+    }
+
+    @lombok.Value
+    public static class Stats {
+
+        private int games;
+
+        /** Games waiting for expiry, finished games stay here until the next sweep. */
+        private int scheduled;
+
+        /** Games created or recovered since start. */
+        private long added;
+
+        private long moves;
+
+        private long expired;
+
+        /** Memory taken by opened fields, tiles on the heap or slabs of the off-heap store. */
+        private long allocatedBytes;
+
+        private long lastSweepMicros;
+
+        private long maxSweepMicros;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import pl.hycom.model.Board;
+
+/**
+ * Storage of games in progress, selected with {@code app.game-store} - {@code heap} (default) keeps boards as objects,
+ * {@code off-heap} keeps them packed outside of the heap.
+ * <p>
+ * A board returned by {@link #get(long)} may be a copy, changes are kept only after {@link #update(long, Board)}.
+ * Reading and writing back one game has to be done under its {@link GameLocks} lock.
+ * <p>
+ * Stores are prototype beans, every {@link GameShard} gets its own one.
+ */
+public interface GameStore {
+
+    void put(long gameId, Board board);
+
+    /**
+     * @return the board or null when there is no such game
+     */
+    Board get(long gameId);
+
+    /**
+     * @return the board or null when there is no such game, it stays readable after the game is removed from the
+     *         store, so it may be read without the game lock
+     */
+    Board copy(long gameId);
+
+    void update(long gameId, Board board);
+
+    void remove(long gameId);
+
+    int size();
+
+    void forEach(LongMap.EntryConsumer<Board> action);
+
+    /**
+     * @return bytes taken by opened fields of the games, layouts are shared and not counted
+     */
+    long getAllocatedBytes();
+}
@@ -23,24 +23,39 @@
  */
 package pl.hycom.service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import lombok.extern.slf4j.Slf4j;
+import pl.hycom.exception.ActionException;
 import pl.hycom.exception.GameConfigurationException;
 import pl.hycom.exception.GameNotFoundException;
 import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
 import pl.hycom.model.Level;
+import pl.hycom.model.MoveResultDTO;
+import pl.hycom.model.RevealedCells;
 import pl.hycom.model.State;
+import pl.hycom.service.GameRepository.StoredGame;
 
 @Slf4j
 @Component
@@ -49,10 +64,64 @@ public class GamesHolder {
     @Value("${app.seconds-after-game-expires:600}")
     private int secondsAfterGameExpires;
 
+    /** Number of shards games are split into, 0 - one per available processor. */
+    @Value("${app.games.shards:0}")
+    private int shardCount;
+
     @Autowired
     private BoardService boardService;
 
-    private final Map<String, Board> games = new ConcurrentHashMap<>();
+    @Autowired
+    private BoardPool boardPool;
+
+    @Autowired
+    private BoardTemplateRegistry templateRegistry;
+
+    @Autowired
+    private GameJournal gameJournal;
+
+    @Autowired
+    private ObjectProvider<GameStore> gameStores;
+
+    @Autowired
+    private GameEvents gameEvents;
+
+    // when set, games are shared with other instances and shards only cache them
+    @Autowired(required = false)
+    private GameRepository gameRepository;
+
+    private final GameIds gameIds = new GameIds();
+
+    private final GameLocks gameLocks = new GameLocks(1024);
+
+    private GameShard[] shards;
+
+    private ExecutorService supervisorExecutor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new GameShard[count];
+        for (int i = 0; i < count; i++) {
+            // games expire after secondsAfterGameExpires without access, checked every second
+            shards[i] = new GameShard(gameStores.getObject(), new ExpiryWheel(TimeUnit.SECONDS.toNanos(1), 1024, System::nanoTime));
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        supervisorExecutor = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "games-supervisor-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        gameJournal.recover().forEach((gameId, board) -> shardOf(gameId).add(gameId, board, timeToLiveNanos()));
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        supervisorExecutor.shutdownNow();
+        supervisorExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
 
     public String initGame(final File file) throws GameConfigurationException {
         Board board = boardService.createBoard(file);
@@ -61,53 +130,303 @@ public class GamesHolder {
     }
 
     public String initGame(final String level) throws GameConfigurationException {
-        Board board = boardService.createBoard(Level.from(level));
+        Board board = boardPool.take(Level.from(level));
+
+        return initGame(board);
+    }
+
+    public String initGameFromTemplate(final String name) throws GameConfigurationException {
+        Board board = BoardFactory.create(templateRegistry.get(name));
 
         return initGame(board);
     }
 
     private String initGame(final Board board) {
-        String gameId = generateGameId();
+        if (gameRepository != null) {
+            return GameIds.format(createShared(board));
+        }
 
-        games.put(gameId, board);
-        return gameId;
+        long gameId = gameIds.next();
+        GameShard shard = shardOf(gameId);
+
+        gameJournal.created(gameId, board, () -> shard.add(gameId, board, timeToLiveNanos()));
+        return GameIds.format(gameId);
     }
 
-    private String generateGameId() {
-        return UUID.randomUUID().toString();
+    private long createShared(final Board board) {
+        byte[] state = encode(board);
+
+        long gameId = gameIds.next();
+        // other instances draw ids with other keys, they may collide
+        while (!gameRepository.create(gameId, state)) {
+            gameId = gameIds.next();
+        }
+        shardOf(gameId).cache(gameId, board, 1, timeToLiveNanos());
+        return gameId;
     }
 
+    /**
+     * Reads the game without its lock, the board is a copy when the store keeps games outside of the heap.
+     */
     public Board getGame(final String id) throws GameNotFoundException {
-        if (!games.containsKey(id)) {
-            throw new GameNotFoundException("Game with id[" + id + "] not found");
+        long gameId = GameIds.parse(id);
+        return found(gameId, gameRepository == null ? shardOf(gameId).copy(gameId) : loadGame(gameId));
+    }
+
+    private static Board found(final long gameId, final Board board) throws GameNotFoundException {
+        if (board == null) {
+            throw new GameNotFoundException("Game with id[" + GameIds.format(gameId) + "] not found");
         }
-        return games.get(id);
+
+        return board;
     }
 
-    @Scheduled(fixedRate = 120000)
-    public void gamesSupervisor() {
-        updateGamesState();
-        removeExpiredGames();
+    private Board loadGame(final long gameId) {
+        GameShard shard = shardOf(gameId);
+
+        Lock lock = gameLocks.forGame(gameId);
+        lock.lock();
+        try {
+            StoredGame stored = gameRepository.load(gameId);
+            if (stored == null) {
+                shard.evict(gameId);
+                return null;
+            }
+
+            Board board = stored.getVersion() == shard.cachedVersion(gameId) ? shard.copy(gameId) : null;
+            if (board == null) {
+                board = decode(gameId, stored.getState());
+                shard.cache(gameId, board, stored.getVersion(), timeToLiveNanos());
+            }
+            return board;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Board action(final String id, final int row, final int column) throws GameNotFoundException, ActionException {
+        return move(id, row, column).getBoard();
+    }
+
+    /**
+     * Makes the move in the game.
+     *
+     * @return the board and fields opened by the move
+     * @throws ActionException when the move hits a bomb or is outside of the board
+     */
+    public Move move(final String id, final int row, final int column) throws GameNotFoundException, ActionException {
+        Batch batch = moves(id, new int[] { row, column });
+        if (batch.getFailure() != null) {
+            throw batch.getFailure();
+        }
+
+        return new Move(batch.getBoard(), batch.getRevealed().isEmpty() ? RevealedCells.NONE : batch.getRevealed().get(0));
+    }
+
+    /**
+     * Makes the moves in the given order until one of them ends the game, moves of a finished game are not applied.
+     * Moves of one game are applied one batch at a time in the order they came, moves of different games run in
+     * parallel.
+     *
+     * @param moves row and column of every move one after another
+     */
+    public Batch moves(final String id, final int[] moves) throws GameNotFoundException, ActionException {
+        if (moves.length % 2 != 0) {
+            throw new ActionException("Moves should be pairs of row and column");
+        }
+
+        long gameId = GameIds.parse(id);
+        GameShard shard = shardOf(gameId);
+
+        Lock lock = gameLocks.forGame(gameId);
+        lock.lock();
+        try {
+            Batch batch = gameRepository == null ? movesLocal(gameId, shard, moves) : movesShared(gameId, shard, moves);
+            if (batch.getApplied() > 0 && gameEvents.hasSubscribers(gameId)) {
+                // published under the lock, so subscribers get the batches in the order they were applied
+                gameEvents.moved(gameId, MoveResultDTO.from(batch.getBoard(), batch.getRevealed(), batch.getApplied()));
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Batch movesLocal(final long gameId, final GameShard shard, final int[] moves) throws GameNotFoundException {
+        // a live board of the store, it's read and changed only under the game lock
+        Board board = found(gameId, shard.get(gameId));
+
+        // every move is appended first, the batch waits for one fsync before the lock is released
+        GameJournal.MoveBatch journal = gameJournal.batch(gameId);
+        Batch batch;
+        try {
+            batch = applyMoves(board, moves, (row, column) -> journal.moved(row, column, () -> {
+                try {
+                    return boardService.action(board, row, column);
+                } finally {
+                    shard.store().update(gameId, board);
+                }
+            }));
+        } finally {
+            journal.await();
+        }
+
+        shard.moved(gameId, batch.getApplied(), board.state() == State.FAIL);
+        // the caller reads the board after the lock is released
+        return new Batch(shard.store().copy(gameId), batch.getRevealed(), batch.getApplied(), batch.getFailure());
+    }
+
+    /**
+     * Applies the moves to the latest state in the repository, when another instance wrote the game in the meantime
+     * the moves are made again on its state. Moves are made on a board decoded from the stored state, the cached
+     * board is replaced only after the write succeeded, so readers never see moves which weren't written.
+     */
+    private Batch movesShared(final long gameId, final GameShard shard, final int[] moves) throws GameNotFoundException {
+        while (true) {
+            StoredGame stored = gameRepository.load(gameId);
+            if (stored == null) {
+                shard.evict(gameId);
+                throw new GameNotFoundException("Game with id[" + GameIds.format(gameId) + "] not found");
+            }
+
+            Board board = decode(gameId, stored.getState());
+            Batch batch = applyMoves(board, moves, (row, column) -> boardService.action(board, row, column));
+
+            if (gameRepository.compareAndSet(gameId, stored.getVersion(), encode(board))) {
+                shard.cache(gameId, board, stored.getVersion() + 1, timeToLiveNanos());
+                shard.moved(gameId, batch.getApplied(), board.state() == State.FAIL);
+                return batch;
+            }
+        }
     }
 
-    private void updateGamesState() {
-        games.entrySet()
-                .parallelStream()
-                .forEach(entry -> entry.getValue().updateStateIfGameExpired(secondsAfterGameExpires));
+    private static Batch applyMoves(final Board board, final int[] moves, final MoveAction action) {
+        List<RevealedCells> revealed = new ArrayList<>(moves.length / 2);
+
+        int applied = 0;
+        while (applied < moves.length / 2 && board.state() == State.ACTIVE) {
+            int row = moves[applied * 2];
+            int column = moves[applied * 2 + 1];
+            applied++;
+
+            try {
+                revealed.add(action.apply(row, column));
+            } catch (ActionException e) {
+                return new Batch(board, revealed, applied, e);
+            }
+        }
+        return new Batch(board, revealed, applied, null);
+    }
+
+    public List<GameShard.Stats> stats() {
+        List<GameShard.Stats> stats = new ArrayList<>(shards.length);
+        for (GameShard shard : shards) {
+            stats.add(shard.stats());
+        }
+        return stats;
+    }
+
+    @Scheduled(fixedRateString = "${app.journal.snapshot-interval:300000}")
+    public void snapshot() throws IOException {
+        List<GameStore> stores = new ArrayList<>(shards.length);
+        for (GameShard shard : shards) {
+            stores.add(shard.store());
+        }
+        gameJournal.snapshot(stores, gameLocks);
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void gamesSupervisor() {
+        CompletableFuture<?>[] sweeps = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            GameShard shard = shards[i];
+            sweeps[i] = CompletableFuture.runAsync(() -> removeExpiredGames(shard), supervisorExecutor);
+        }
+        CompletableFuture.allOf(sweeps).join();
     }
 
-    private void removeExpiredGames() {
+    private void removeExpiredGames(final GameShard shard) {
+        for (long gameId : shard.sweep()) {
+            if (log.isInfoEnabled()) {
+                log.info("Removed session =[" + GameIds.format(gameId) + "]");
+            }
 
-        Iterator<Entry<String, Board>> entriesIterator = games.entrySet().iterator();
-        while (entriesIterator.hasNext()) {
-            Entry<String, Board> entry = entriesIterator.next();
-            if (entry.getValue().state() == State.FAIL) {
-                if (log.isInfoEnabled()) {
-                    log.info("Removed session =[" + entry.getKey() + "]");
+            // a move which already found the board finishes before the store frees it
+            Lock lock = gameLocks.forGame(gameId);
+            lock.lock();
+            try {
+                if (gameRepository == null) {
+                    gameJournal.removed(gameId, () -> shard.remove(gameId));
+                    gameEvents.expired(gameId);
+                } else {
+                    // other instances may still serve it, the repository drops it once idle
+                    shard.remove(gameId);
                 }
-                entriesIterator.remove();
+            } finally {
+                lock.unlock();
             }
         }
     }
 
+    @Scheduled(fixedRateString = "${app.game-repository.cleanup-interval:60000}")
+    public void removeIdleGames() {
+        if (gameRepository != null) {
+            gameRepository.removeIdle(TimeUnit.SECONDS.toMillis(secondsAfterGameExpires));
+        }
+    }
+
+    private long timeToLiveNanos() {
+        return TimeUnit.SECONDS.toNanos(secondsAfterGameExpires);
+    }
+
+    private static byte[] encode(final Board board) {
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        try {
+            board.export(state, true);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return state.toByteArray();
+    }
+
+    private static Board decode(final long gameId, final byte[] state) {
+        try {
+            return BoardFactory.createFromBinary(ByteBuffer.wrap(state));
+        } catch (GameConfigurationException e) {
+            throw new IllegalStateException("State of game [" + GameIds.format(gameId) + "] is corrupted", e);
+        }
+    }
+
+    private GameShard shardOf(final long gameId) {
+        // lower word of the hash, LongMap segments and GameLocks stripes take bits of the upper one
+        return shards[(int) (((LongMap.hash(gameId) & 0xFFFFFFFFL) * shards.length) >>> 32)];
+    }
+
+    @FunctionalInterface
+    private interface MoveAction {
+
+        RevealedCells apply(int row, int column) throws ActionException;
+    }
+
+    @lombok.Value
+    public static class Move {
+
+        private Board board;
+
+        private RevealedCells revealed;
+    }
+
+    @lombok.Value
+    public static class Batch {
+
+        private Board board;
+
+        /** Fields opened by every applied move, a move which failed has none. */
+        private List<RevealedCells> revealed;
+
+        private int applied;
+
+        /** Why the last applied move ended the game, null when no move failed. */
+        private ActionException failure;
+    }
 }
@@ -0,0 +1,92 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import pl.hycom.model.Board;
+
+/**
+ * Boards kept as objects in a map.
+ */
+@Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+@ConditionalOnProperty(name = "app.game-store", havingValue = "heap", matchIfMissing = true)
+public class HeapGameStore implements GameStore {
+
+    private final LongMap<Board> games = new LongMap<>();
+
+    @Override
+    public void put(final long gameId, final Board board) {
+        games.put(gameId, board);
+    }
+
+    @Override
+    public Board get(final long gameId) {
+        return games.get(gameId);
+    }
+
+    /**
+     * Boards live on the heap, a removed one stays readable as long as it's referenced.
+     */
+    @Override
+    public Board copy(final long gameId) {
+        return games.get(gameId);
+    }
+
+    @Override
+    public void update(final long gameId, final Board board) {
+        // the board is changed in place
+    }
+
+    @Override
+    public void remove(final long gameId) {
+        games.remove(gameId);
+    }
+
+    @Override
+    public int size() {
+        return games.size();
+    }
+
+    @Override
+    public void forEach(final LongMap.EntryConsumer<Board> action) {
+        games.forEach(action);
+    }
+
+    /**
+     * Tiles of opened fields are allocated by moves, so they're summed when asked instead of tracked on every change.
+     */
+    @Override
+    public long getAllocatedBytes() {
+        AtomicLong allocated = new AtomicLong();
+        games.forEach((gameId, board) -> allocated.addAndGet(board.getAllocatedBytes()));
+        return allocated.get();
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Repository in this JVM, for a single instance or as a stand-in for a shared store in tests.
+ */
+@Component
+@ConditionalOnProperty(name = "app.game-repository", havingValue = "memory")
+public class InMemoryGameRepository implements GameRepository {
+
+    private final LongMap<Entry> games = new LongMap<>();
+
+    @Override
+    public boolean create(final long gameId, final byte[] state) {
+        return games.putIfAbsent(gameId, new Entry(new StoredGame(1, state.clone()))) == null;
+    }
+
+    @Override
+    public StoredGame load(final long gameId) {
+        Entry entry = games.get(gameId);
+        return entry == null ? null : entry.game;
+    }
+
+    @Override
+    public boolean compareAndSet(final long gameId, final long version, final byte[] state) {
+        Entry entry = games.get(gameId);
+        if (entry == null || entry.game.getVersion() != version) {
+            return false;
+        }
+        return games.replace(gameId, entry, new Entry(new StoredGame(version + 1, state.clone())));
+    }
+
+    @Override
+    public void remove(final long gameId) {
+        games.remove(gameId);
+    }
+
+    @Override
+    public int removeIdle(final long idleMillis) {
+        long writtenBefore = System.currentTimeMillis() - idleMillis;
+
+        AtomicInteger removed = new AtomicInteger();
+        games.forEach((gameId, entry) -> {
+            if (entry.writtenMillis < writtenBefore && games.remove(gameId, entry)) {
+                removed.incrementAndGet();
+            }
+        });
+        return removed.get();
+    }
+
+    private static final class Entry {
+
+        private final StoredGame game;
+
+        private final long writtenMillis = System.currentTimeMillis();
+
+        private Entry(final StoredGame game) {
+            this.game = game;
+        }
+    }
+}
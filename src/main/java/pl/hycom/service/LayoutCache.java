@@ -0,0 +1,86 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.BoardLayout;
+
+/**
+ * Interns board layouts by key, so games started from the same file or seed share one layout.
+ * Layouts are weakly referenced and dropped from the cache once no game uses them. Two threads asking for a missing
+ * key at the same time may both build the layout, the last one stays in the cache - both are equal, so it's harmless.
+ */
+final class LayoutCache {
+
+    private final Map<String, LayoutReference> layouts = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<BoardLayout> released = new ReferenceQueue<>();
+
+    BoardLayout get(final String key, final LayoutLoader loader) throws GameConfigurationException {
+        removeReleased();
+
+        LayoutReference reference = layouts.get(key);
+        BoardLayout layout = reference == null ? null : reference.get();
+
+        if (layout == null) {
+            layout = loader.load();
+            layouts.put(key, new LayoutReference(key, layout, released));
+        }
+
+        return layout;
+    }
+
+    int size() {
+        removeReleased();
+        return layouts.size();
+    }
+
+    private void removeReleased() {
+        LayoutReference reference;
+        while ((reference = (LayoutReference) released.poll()) != null) {
+            layouts.remove(reference.key, reference);
+        }
+    }
+
+    @FunctionalInterface
+    interface LayoutLoader {
+
+        BoardLayout load() throws GameConfigurationException;
+    }
+
+    private static final class LayoutReference extends WeakReference<BoardLayout> {
+
+        private final String key;
+
+        private LayoutReference(final String key, final BoardLayout layout, final ReferenceQueue<BoardLayout> queue) {
+            super(layout, queue);
+            this.key = key;
+        }
+    }
+}
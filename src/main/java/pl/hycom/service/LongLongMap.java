@@ -0,0 +1,204 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.util.Arrays;
+
+/**
+ * Concurrent map from primitive long to primitive long, the same as {@link LongMap} without boxing values.
+ * Values have to be non negative, {@link #NO_VALUE} is returned for missing keys.
+ */
+public final class LongLongMap {
+
+    public static final long NO_VALUE = -1;
+
+    private static final int SEGMENTS = 64;
+
+    private final Segment[] segments;
+
+    public LongLongMap() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public long get(final long key) {
+        long hash = LongMap.hash(key);
+        return segment(hash).get(key, hash);
+    }
+
+    /**
+     * @return previous value or {@link #NO_VALUE}
+     */
+    public long put(final long key, final long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value can't be negative");
+        }
+        long hash = LongMap.hash(key);
+        return segment(hash).put(key, hash, value);
+    }
+
+    /**
+     * @return removed value or {@link #NO_VALUE}
+     */
+    public long remove(final long key) {
+        long hash = LongMap.hash(key);
+        return segment(hash).remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Visits entries segment by segment, every segment is copied first so the action runs without any lock held and
+     * may change the map.
+     */
+    public void forEach(final EntryConsumer action) {
+        for (Segment segment : segments) {
+            segment.copyTo(action);
+        }
+    }
+
+    private Segment segment(final long hash) {
+        return segments[(int) (hash >>> 58)];
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(long key, long value);
+    }
+
+    private static final class Segment {
+
+        private long[] keys = new long[16];
+
+        private long[] values = emptyValues(16);
+
+        private volatile int size;
+
+        private synchronized long get(final long key, final long hash) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values[i] != NO_VALUE; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return NO_VALUE;
+        }
+
+        private synchronized long put(final long key, final long hash, final long value) {
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            for (; values[i] != NO_VALUE; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    long previous = values[i];
+                    values[i] = value;
+                    return previous;
+                }
+            }
+
+            keys[i] = key;
+            values[i] = value;
+            size++;
+            if (size * 4 > keys.length * 3) {
+                resize();
+            }
+            return NO_VALUE;
+        }
+
+        private synchronized long remove(final long key, final long hash) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values[i] != NO_VALUE; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    long previous = values[i];
+                    delete(i);
+                    size--;
+                    return previous;
+                }
+            }
+            return NO_VALUE;
+        }
+
+        private void delete(final int removed) {
+            int mask = keys.length - 1;
+            int gap = removed;
+            for (int i = (gap + 1) & mask; values[i] != NO_VALUE; i = (i + 1) & mask) {
+                int home = (int) LongMap.hash(keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    gap = i;
+                }
+            }
+            values[gap] = NO_VALUE;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = emptyValues(oldValues.length * 2);
+
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != NO_VALUE) {
+                    int i = (int) LongMap.hash(oldKeys[j]) & mask;
+                    while (values[i] != NO_VALUE) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private void copyTo(final EntryConsumer action) {
+            long[] copiedKeys;
+            long[] copiedValues;
+            synchronized (this) {
+                copiedKeys = Arrays.copyOf(keys, keys.length);
+                copiedValues = Arrays.copyOf(values, values.length);
+            }
+
+            for (int i = 0; i < copiedKeys.length; i++) {
+                if (copiedValues[i] != NO_VALUE) {
+                    action.accept(copiedKeys[i], copiedValues[i]);
+                }
+            }
+        }
+
+        private static long[] emptyValues(final int length) {
+            long[] values = new long[length];
+            Arrays.fill(values, NO_VALUE);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.util.Arrays;
+
+/**
+ * Concurrent map from primitive long to object, so keys take 8 bytes instead of a boxed or string key per entry.
+ * Entries are spread over segments by hash of the key, every segment is an open addressing table with linear probing
+ * guarded by its own monitor. Null values are not allowed.
+ */
+public final class LongMap<V> {
+
+    private static final int SEGMENTS = 64;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public LongMap() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    public V get(final long key) {
+        long hash = hash(key);
+        return segment(hash).get(key, hash);
+    }
+
+    /**
+     * @return previous value or null
+     */
+    public V put(final long key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("Value can't be null");
+        }
+        long hash = hash(key);
+        return segment(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * @return current value or null when the value was put
+     */
+    public V putIfAbsent(final long key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("Value can't be null");
+        }
+        long hash = hash(key);
+        return segment(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * Replaces the value only when the key is mapped to the expected one.
+     */
+    public boolean replace(final long key, final V expected, final V value) {
+        if (value == null) {
+            throw new NullPointerException("Value can't be null");
+        }
+        long hash = hash(key);
+        return segment(hash).replace(key, hash, expected, value);
+    }
+
+    /**
+     * @return removed value or null
+     */
+    public V remove(final long key) {
+        long hash = hash(key);
+        return segment(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Removes the key only when it's mapped to the given value.
+     */
+    public boolean remove(final long key, final V value) {
+        long hash = hash(key);
+        return segment(hash).remove(key, hash, value) != null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Visits entries segment by segment, every segment is copied first so the action runs without any lock held and
+     * may change the map.
+     */
+    public void forEach(final EntryConsumer<V> action) {
+        for (Segment<V> segment : segments) {
+            segment.copyTo(action);
+        }
+    }
+
+    private Segment<V> segment(final long hash) {
+        return segments[(int) (hash >>> 58)];
+    }
+
+    static long hash(final long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ hash >>> 29;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(long key, V value);
+    }
+
+    private static final class Segment<V> {
+
+        private long[] keys = new long[16];
+
+        private Object[] values = new Object[16];
+
+        private volatile int size;
+
+        private synchronized V get(final long key, final long hash) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return value(i);
+                }
+            }
+            return null;
+        }
+
+        private synchronized V put(final long key, final long hash, final V value, final boolean onlyIfAbsent) {
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            for (; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    V previous = value(i);
+                    if (!onlyIfAbsent) {
+                        values[i] = value;
+                    }
+                    return previous;
+                }
+            }
+
+            keys[i] = key;
+            values[i] = value;
+            size++;
+            if (size * 4 > keys.length * 3) {
+                resize();
+            }
+            return null;
+        }
+
+        private synchronized boolean replace(final long key, final long hash, final V expected, final V value) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    if (values[i] != expected) {
+                        return false;
+                    }
+                    values[i] = value;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private synchronized V remove(final long key, final long hash, final V expected) {
+            int mask = keys.length - 1;
+            for (int i = (int) hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    V previous = value(i);
+                    if (expected != null && previous != expected) {
+                        return null;
+                    }
+                    delete(i);
+                    size--;
+                    return previous;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Backward shift deletion, entries after the removed one move up so no tombstones are needed.
+         */
+        private void delete(final int removed) {
+            int mask = keys.length - 1;
+            int gap = removed;
+            for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                int home = (int) hash(keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    gap = i;
+                }
+            }
+            values[gap] = null;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = (int) hash(oldKeys[j]) & mask;
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private void copyTo(final EntryConsumer<V> action) {
+            long[] copiedKeys;
+            Object[] copiedValues;
+            synchronized (this) {
+                copiedKeys = Arrays.copyOf(keys, keys.length);
+                copiedValues = Arrays.copyOf(values, values.length);
+            }
+
+            for (int i = 0; i < copiedKeys.length; i++) {
+                if (copiedValues[i] != null) {
+                    @SuppressWarnings("unchecked")
+                    V value = (V) copiedValues[i];
+                    action.accept(copiedKeys[i], value);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private V value(final int i) {
+            return (V) values[i];
+        }
+    }
+}
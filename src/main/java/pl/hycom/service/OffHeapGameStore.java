@@ -0,0 +1,297 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.model.BoardLayout;
+import pl.hycom.model.State;
+
+/**
+ * Opened fields of games kept in slots of direct buffers, so millions of idle games don't add work to the garbage
+ * collector. The bombs stay in the {@link BoardLayout} shared by all games of the same template or seed, the store
+ * only keeps a reference to it. Slots are grouped in size classes of 64, 128, 256... bytes, a standard 8x8 game takes
+ * one 64 byte slot:
+ * <pre>
+ * state (int) | opened fields count (int) | opened fields, one long per 64 columns of a row
+ * </pre>
+ * {@link #get(long)} returns a view of the slot - nothing is decoded and moves write the opened fields straight into
+ * it, {@link #update(long, Board)} writes the state and the count. A view must not be used after its game is removed,
+ * moves are serialized by the caller.
+ */
+@Slf4j
+@Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+@ConditionalOnProperty(name = "app.game-store", havingValue = "off-heap")
+public class OffHeapGameStore implements GameStore {
+
+    private static final int SLOT_HEADER_SIZE = 8;
+
+    private static final int MIN_SLOT_SHIFT = 6;
+
+    private static final int LOCKS = 256;
+
+    // values() clones the array on every call
+    private static final State[] STATES = State.values();
+
+    @Value("${app.game-store.slab-size:4194304}")
+    private int slabSize = 4 * 1024 * 1024;
+
+    private final LongLongMap slots = new LongLongMap();
+
+    private final LongMap<BoardLayout> layouts = new LongMap<>();
+
+    private final SlabClass[] classes = new SlabClass[32 - MIN_SLOT_SHIFT];
+
+    private final Object[] locks = new Object[LOCKS];
+
+    public OffHeapGameStore() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public void put(final long gameId, final Board board) {
+        int sizeClass = sizeClass(SLOT_HEADER_SIZE + BoardFactory.openedFieldsWords(board.getLayout()) * Long.BYTES);
+
+        synchronized (stripe(gameId)) {
+            long slot = slabClass(sizeClass).allocate();
+            write(slot(sizeClass, slot), board);
+            layouts.put(gameId, board.getLayout());
+
+            long previous = slots.put(gameId, address(sizeClass, slot));
+            if (previous != LongLongMap.NO_VALUE) {
+                free(previous);
+            }
+        }
+    }
+
+    @Override
+    public Board get(final long gameId) {
+        synchronized (stripe(gameId)) {
+            long address = slots.get(gameId);
+            if (address == LongLongMap.NO_VALUE) {
+                return null;
+            }
+
+            BoardLayout layout = layouts.get(gameId);
+            ByteBuffer buffer = slot(address);
+            State state = STATES[buffer.getInt()];
+            int opened = buffer.getInt();
+            return BoardFactory.createView(layout, openedFields(buffer), opened, state);
+        }
+    }
+
+    /**
+     * Opened fields are copied to the heap, a view would read the slot after it's freed and taken by another game.
+     */
+    @Override
+    public Board copy(final long gameId) {
+        synchronized (stripe(gameId)) {
+            long address = slots.get(gameId);
+            if (address == LongLongMap.NO_VALUE) {
+                return null;
+            }
+
+            BoardLayout layout = layouts.get(gameId);
+            ByteBuffer buffer = slot(address);
+            State state = STATES[buffer.getInt()];
+            int opened = buffer.getInt();
+            long[] openedFields = new long[BoardFactory.openedFieldsWords(layout)];
+            openedFields(buffer).get(openedFields);
+            return BoardFactory.createView(layout, LongBuffer.wrap(openedFields), opened, state);
+        }
+    }
+
+    @Override
+    public void update(final long gameId, final Board board) {
+        synchronized (stripe(gameId)) {
+            long address = slots.get(gameId);
+            if (address == LongLongMap.NO_VALUE) {
+                return;
+            }
+
+            BoardLayout layout = layouts.get(gameId);
+            if (layout.getRows() != board.getRows() || layout.getColumns() != board.getColumns()) {
+                throw new IllegalStateException("Game [" + gameId + "] changed its size");
+            }
+            // a view of this slot rewrites its own words, a board from elsewhere is copied in
+            write(slot(address), board);
+        }
+    }
+
+    @Override
+    public void remove(final long gameId) {
+        synchronized (stripe(gameId)) {
+            long address = slots.remove(gameId);
+            if (address != LongLongMap.NO_VALUE) {
+                layouts.remove(gameId);
+                free(address);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public void forEach(final LongMap.EntryConsumer<Board> action) {
+        slots.forEach((gameId, address) -> {
+            Board board = get(gameId);
+            if (board != null) {
+                action.accept(gameId, board);
+            }
+        });
+    }
+
+    // guards the slot of the game against reading while it's written, moves are serialized by the caller
+    private Object stripe(final long gameId) {
+        return locks[(int) LongMap.hash(gameId) & (LOCKS - 1)];
+    }
+
+    /**
+     * Bytes of direct buffers taken by all size classes, including free slots.
+     */
+    @Override
+    public long getAllocatedBytes() {
+        long allocated = 0;
+        for (SlabClass slabClass : classes) {
+            if (slabClass != null) {
+                allocated += slabClass.allocatedBytes();
+            }
+        }
+        return allocated;
+    }
+
+    private static void write(final ByteBuffer slot, final Board board) {
+        slot.putInt(board.state().ordinal()).putInt(board.getVersion());
+        board.exportOpenedFields(openedFields(slot));
+    }
+
+    private static LongBuffer openedFields(final ByteBuffer slot) {
+        // slots start at multiples of 64 bytes and the header takes 8, so the longs are aligned
+        return slot.slice().order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    private static int sizeClass(final int size) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1 << MIN_SLOT_SHIFT) - 1);
+        return shift - MIN_SLOT_SHIFT;
+    }
+
+    private synchronized SlabClass slabClass(final int sizeClass) {
+        if (classes[sizeClass] == null) {
+            classes[sizeClass] = new SlabClass(1 << (sizeClass + MIN_SLOT_SHIFT), slabSize);
+        }
+        return classes[sizeClass];
+    }
+
+    private static long address(final int sizeClass, final long slot) {
+        return (long) sizeClass << 56 | slot;
+    }
+
+    private ByteBuffer slot(final long address) {
+        return slot((int) (address >>> 56), address & 0xFFFFFFFFFFFFFFL);
+    }
+
+    private ByteBuffer slot(final int sizeClass, final long slot) {
+        return classes[sizeClass].slot(slot);
+    }
+
+    private void free(final long address) {
+        classes[(int) (address >>> 56)].free(address & 0xFFFFFFFFFFFFFFL);
+    }
+
+    /**
+     * Slots of one size in direct buffers allocated on demand, freed slots are reused before new ones.
+     */
+    private static final class SlabClass {
+
+        private final int slotSize;
+
+        private final int slotsPerSlab;
+
+        private final List<ByteBuffer> slabs = new ArrayList<>();
+
+        private long[] free = new long[64];
+
+        private int freeCount;
+
+        private long used;
+
+        private SlabClass(final int slotSize, final int slabSize) {
+            this.slotSize = slotSize;
+            slotsPerSlab = Math.max(1, slabSize / slotSize);
+        }
+
+        private synchronized long allocate() {
+            if (freeCount > 0) {
+                return free[--freeCount];
+            }
+
+            if (used == (long) slabs.size() * slotsPerSlab) {
+                slabs.add(ByteBuffer.allocateDirect(slotsPerSlab * slotSize));
+                if (log.isInfoEnabled()) {
+                    log.info("Off heap store allocated slab " + slabs.size() + " for " + slotSize + " byte slots");
+                }
+            }
+            return used++;
+        }
+
+        private synchronized void free(final long slot) {
+            if (freeCount == free.length) {
+                long[] grown = new long[free.length * 2];
+                System.arraycopy(free, 0, grown, 0, freeCount);
+                free = grown;
+            }
+            free[freeCount++] = slot;
+        }
+
+        private synchronized ByteBuffer slot(final long slot) {
+            ByteBuffer slab = slabs.get((int) (slot / slotsPerSlab)).duplicate();
+            int offset = (int) (slot % slotsPerSlab) * slotSize;
+            slab.limit(offset + slotSize).position(offset);
+            return slab;
+        }
+
+        private synchronized long allocatedBytes() {
+            return (long) slabs.size() * slotsPerSlab * slotSize;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import pl.hycom.model.Board;
+import pl.hycom.model.FieldDTO;
+
+/**
+ * Rendered HTML of board rows, the board page puts them together instead of rendering every field again.
+ * A row is rendered again only when its {@link Board#getRowVersion(int) version} changed since it was cached.
+ * Rows of the most recently rendered games are kept, the least recently rendered game goes when the cache is full.
+ */
+@Component
+public class RowFragmentCache {
+
+    static final String ROW_TEMPLATE = "boardRow";
+
+    @Value("${app.render.cached-games:1024}")
+    private int cachedGames = 1024;
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    private final Map<String, RowFragments> games = new LinkedHashMap<String, RowFragments>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, RowFragments> eldest) {
+            return size() > cachedGames;
+        }
+    };
+
+    private final AtomicLong renderedRows = new AtomicLong();
+
+    private final AtomicLong cachedRows = new AtomicLong();
+
+    /**
+     * @return HTML of every row of the board in order
+     */
+    public List<String> render(final String gameId, final Board board) {
+        RowFragments fragments;
+        synchronized (games) {
+            fragments = games.get(gameId);
+            if (fragments == null || fragments.html.length != board.getRows()) {
+                fragments = new RowFragments(board.getRows());
+                games.put(gameId, fragments);
+            }
+        }
+
+        Map<Integer, List<FieldDTO>> fields = null;
+        synchronized (fragments) {
+            for (int row = 0; row < board.getRows(); row++) {
+                int version = board.getRowVersion(row);
+                if (fragments.html[row] != null && fragments.versions[row] == version) {
+                    cachedRows.incrementAndGet();
+                    continue;
+                }
+
+                if (fields == null) {
+                    fields = board.prepareDTO();
+                }
+                Context context = new Context();
+                context.setVariable("row", row);
+                context.setVariable("fields", fields.get(row));
+
+                fragments.html[row] = templateEngine.process(ROW_TEMPLATE, context);
+                fragments.versions[row] = version;
+                renderedRows.incrementAndGet();
+            }
+            return Arrays.asList(fragments.html.clone());
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (games) {
+            size = games.size();
+        }
+        return new Stats(size, renderedRows.get(), cachedRows.get());
+    }
+
+    private static final class RowFragments {
+
+        private final String[] html;
+
+        private final int[] versions;
+
+        private RowFragments(final int rows) {
+            html = new String[rows];
+            versions = new int[rows];
+        }
+    }
+
+    @lombok.Value
+    public static class Stats {
+
+        private int games;
+
+        /** Rows rendered with the template since start. */
+        private long renderedRows;
+
+        /** Rows taken from the cache since start. */
+        private long cachedRows;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Sends moves to the game API and opens only the fields the move revealed, the form posts the move the usual way
+ * when the script can't run. Fields opened in another window of the same game come in as server-sent events.
+ */
+(function () {
+    var form = document.querySelector('form');
+    var gameId = form && form.elements.gameId && form.elements.gameId.value;
+    if (!gameId || !window.fetch) {
+        return;
+    }
+
+    var buttons = {};
+    Array.prototype.forEach.call(form.querySelectorAll('.grid__button'), function (button) {
+        buttons[button.value] = button;
+    });
+
+    function open(row, column, value) {
+        var button = buttons[row + ':' + column];
+        if (button) {
+            button.disabled = true;
+            button.innerHTML = '<span>' + value + '</span>';
+        }
+    }
+
+    function apply(result) {
+        for (var i = 0; i < result.cells.length; i += 3) {
+            open(result.cells[i], result.cells[i + 1], result.cells[i + 2]);
+        }
+
+        if (result.state === 'WIN') {
+            window.location = './winner';
+        } else if (result.state === 'FAIL') {
+            window.location = './game-over';
+        }
+    }
+
+    function listen() {
+        var events = new EventSource('./api/games/' + encodeURIComponent(gameId) + '/events');
+        events.addEventListener('move', function (event) {
+            apply(JSON.parse(event.data));
+        });
+        events.addEventListener('lagged', function () {
+            // the events in between are lost, the board is loaded again
+            events.close();
+            window.location = './game?gameId=' + encodeURIComponent(gameId);
+        });
+        events.addEventListener('expired', function () {
+            events.close();
+            window.location = './';
+        });
+    }
+
+    if (window.EventSource) {
+        listen();
+    }
+
+    form.addEventListener('click', function (event) {
+        var button = event.target.closest('.grid__button');
+        if (!button || button.disabled) {
+            return;
+        }
+        event.preventDefault();
+
+        var move = button.value.split(':');
+        fetch('./api/games/' + encodeURIComponent(gameId) + '/moves', {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ row: +move[0], column: +move[1] })
+        }).then(function (response) {
+            if (!response.ok) {
+                throw new Error('Move failed with status ' + response.status);
+            }
+            return response.json();
+        }).then(apply).catch(function () {
+            window.location = './game-over';
+        });
+    });
+})();
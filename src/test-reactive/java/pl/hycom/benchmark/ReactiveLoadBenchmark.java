@@ -0,0 +1,152 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import pl.hycom.SaperGameApplication;
+import pl.hycom.service.GameEvents;
+import pl.hycom.service.GamesHolder;
+import reactor.core.Disposable;
+
+/**
+ * Holds open event streams while players make moves through the game API, once on the servlet stack and once with
+ * the {@code reactive} profile. Prints how long opening the streams took, moves per second and the threads of the JVM
+ * by pool.
+ * Not part of the regular build, run it with {@code mvn test -Preactive -Dtest=ReactiveLoadBenchmark}, raise the open
+ * files limit for more streams.
+ */
+public class ReactiveLoadBenchmark {
+
+    private static final int STREAMS = 4_000;
+
+    private static final int STREAMS_PER_GAME = 10;
+
+    private static final int PLAYERS = 64;
+
+    private static final int MOVES_PER_PLAYER = 500;
+
+    @Test
+    public void servletAndReactiveStacks() throws Exception {
+        load("servlet");
+        load("reactive");
+    }
+
+    private static void load(final String profile) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(SaperGameApplication.class).properties("server.port=0", "logging.level.root=WARN");
+        if ("reactive".equals(profile)) {
+            builder.profiles(profile);
+        }
+
+        try (ConfigurableApplicationContext context = builder.run()) {
+            GamesHolder gamesHolder = context.getBean(GamesHolder.class);
+            GameEvents gameEvents = context.getBean(GameEvents.class);
+            WebClient client = WebClient.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+
+            String[] watched = new String[STREAMS / STREAMS_PER_GAME];
+            for (int i = 0; i < watched.length; i++) {
+                watched[i] = gamesHolder.initGame("hard");
+            }
+
+            long start = System.nanoTime();
+            List<Disposable> streams = new ArrayList<>(STREAMS);
+            for (int i = 0; i < STREAMS; i++) {
+                streams.add(client.get().uri("/api/games/{gameId}/events", watched[i % watched.length]).accept(MediaType.TEXT_EVENT_STREAM).retrieve()
+                        .bodyToFlux(String.class).subscribe(event -> {
+                        }, e -> {
+                        }));
+            }
+            while (gameEvents.subscriberCount() < STREAMS) {
+                if (System.nanoTime() - start > TimeUnit.MINUTES.toNanos(1)) {
+                    throw new AssertionError("Only " + gameEvents.subscriberCount() + " of " + STREAMS + " streams opened");
+                }
+                Thread.sleep(10);
+            }
+            long openMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            AtomicLong moves = new AtomicLong();
+            ExecutorService players = Executors.newFixedThreadPool(PLAYERS);
+            start = System.nanoTime();
+            List<Future<?>> games = new ArrayList<>();
+            for (int p = 0; p < PLAYERS; p++) {
+                SplittableRandom random = new SplittableRandom(p);
+                games.add(players.submit(() -> {
+                    String gameId = gamesHolder.initGame("hard");
+                    for (int i = 0; i < MOVES_PER_PLAYER; i++) {
+                        ClientResponse response = client.post().uri("/api/games/{gameId}/moves", gameId).contentType(MediaType.APPLICATION_JSON)
+                                .syncBody("{\"row\":" + random.nextInt(8) + ",\"column\":" + random.nextInt(8) + "}").exchange().block();
+                        String body = response.bodyToMono(String.class).block();
+                        moves.incrementAndGet();
+
+                        // a bomb or a field opened before, the player starts again
+                        if (body == null || !body.contains("\"ACTIVE\"")) {
+                            gameId = gamesHolder.initGame("hard");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Map<String, Integer> threads = threadsByPool();
+            for (Future<?> game : games) {
+                game.get();
+            }
+            long nanos = System.nanoTime() - start;
+            players.shutdown();
+
+            System.out.printf("%-8s streams %5d opened in %5d ms  moves %7.0f/s  threads %4d %s%n", profile, gameEvents.subscriberCount(), openMillis,
+                    moves.get() * 1e9 / nanos, ManagementFactory.getThreadMXBean().getThreadCount(), threads);
+
+            streams.forEach(Disposable::dispose);
+        }
+    }
+
+    /**
+     * Live threads counted by name without the trailing number, e.g. {@code http-nio-8070-exec}.
+     */
+    private static Map<String, Integer> threadsByPool() {
+        Map<String, Integer> pools = new TreeMap<>();
+        for (ThreadInfo thread : ManagementFactory.getThreadMXBean().dumpAllThreads(false, false)) {
+            pools.merge(thread.getThreadName().replaceAll("[-\\d]+$", ""), 1, Integer::sum);
+        }
+        return pools;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.DelegatingWebFluxConfiguration;
+
+import pl.hycom.controller.ReactiveGameApiController;
+import pl.hycom.exception.GameNotFoundException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.model.MoveResultDTO;
+import pl.hycom.model.RevealedCells;
+import pl.hycom.model.State;
+import pl.hycom.service.GameEvents;
+import pl.hycom.service.GameIds;
+import pl.hycom.service.GamesHolder;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactiveGameApiControllerTest {
+
+    @Mock
+    private GamesHolder gamesHolder;
+
+    private final GameEvents gameEvents = new GameEvents();
+
+    private AnnotationConfigApplicationContext context;
+
+    private ReactiveGameApiController gameApiController;
+
+    private WebTestClient client;
+
+    @Before
+    public void init() {
+        gameEvents.init();
+
+        // the controller is autowired, collaborators are registered as ready objects so they aren't wired themselves
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("reactive");
+        context.getBeanFactory().registerSingleton("gamesHolder", gamesHolder);
+        context.getBeanFactory().registerSingleton("gameEvents", gameEvents);
+        context.getBeanFactory().registerSingleton("gameEngineScheduler", Schedulers.immediate());
+        context.register(DelegatingWebFluxConfiguration.class, ReactiveGameApiController.class);
+        context.refresh();
+
+        gameApiController = context.getBean(ReactiveGameApiController.class);
+        client = WebTestClient.bindToApplicationContext(context).build();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        context.close();
+        gameEvents.destroy();
+    }
+
+    @Test
+    public void move_revealedCellsOnly() throws Exception {
+        Board board = BoardFactory.createRandom(0, 2);
+        RevealedCells revealed = board.check(1, 0);
+
+        Mockito.when(gamesHolder.moves(Mockito.eq("123"), aryEq(new int[] { 1, 0 })))
+                .thenReturn(new GamesHolder.Batch(board, Collections.singletonList(revealed), 1, null));
+
+        client.post().uri("/api/games/123/moves").contentType(MediaType.APPLICATION_JSON).syncBody("{\"row\":1,\"column\":0}").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.state").isEqualTo("WIN")
+                .jsonPath("$.cells.length()").isEqualTo(12);
+    }
+
+    @Test
+    public void moves_overLimit() {
+        ReflectionTestUtils.setField(gameApiController, "batchLimit", 1);
+
+        client.post().uri("/api/games/123/moves/batch").contentType(MediaType.APPLICATION_JSON).syncBody("[0, 0, 1, 1]").exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void events_noGame() throws Exception {
+        Mockito.when(gamesHolder.getGame("123")).thenThrow(new GameNotFoundException("test"));
+
+        client.get().uri("/api/games/123/events").accept(MediaType.TEXT_EVENT_STREAM).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void events_streamedUntilGameEnds() throws Exception {
+        String gameId = GameIds.format(42L);
+        Mockito.when(gamesHolder.getGame(gameId)).thenReturn(BoardFactory.createRandom(0, 2));
+
+        // headers of a stream go out with its first event, so the moves are made while the exchange waits for them
+        new Thread(() -> {
+            await().until(() -> gameEvents.hasSubscribers(42L));
+            gameEvents.moved(42L, new MoveResultDTO(State.ACTIVE, 3, 1, new int[] { 1, 0, 1 }));
+            gameEvents.moved(42L, new MoveResultDTO(State.WIN, 0, 1, new int[] { 0, 0, 1 }));
+        }).start();
+
+        List<String> events = client.get().uri("/api/games/{gameId}/events", gameId).accept(MediaType.TEXT_EVENT_STREAM).exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseBody()
+                .collectList().block(Duration.ofSeconds(10));
+
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).contains("\"WIN\""));
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.DelegatingWebFluxConfiguration;
+import org.springframework.web.reactive.config.ViewResolverRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.view.View;
+import org.springframework.web.server.ServerWebExchange;
+
+import pl.hycom.controller.ReactiveSaperController;
+import pl.hycom.controller.SaperController;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.service.GamesHolder;
+import pl.hycom.service.RowFragmentCache;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReactiveSaperControllerTest {
+
+    @Mock
+    private GamesHolder gamesHolder;
+
+    @Mock
+    private RowFragmentCache rowFragmentCache;
+
+    private AnnotationConfigApplicationContext context;
+
+    private WebTestClient client;
+
+    @Before
+    public void init() {
+        // the controller is autowired, collaborators are registered as ready objects so they aren't wired themselves
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("reactive");
+        context.getBeanFactory().registerSingleton("gamesHolder", gamesHolder);
+        context.getBeanFactory().registerSingleton("rowFragmentCache", rowFragmentCache);
+        context.getBeanFactory().registerSingleton("gameEngineScheduler", Schedulers.immediate());
+        context.getBeanFactory().registerSingleton("viewNames", new ViewNames());
+        context.register(DelegatingWebFluxConfiguration.class, ReactiveSaperController.class);
+        context.refresh();
+
+        client = WebTestClient.bindToApplicationContext(context).build();
+    }
+
+    @After
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void get_game_notModified() throws Exception {
+        Board board = BoardFactory.createRandom(1, 3, 3, 1L);
+        Mockito.when(gamesHolder.getGame("123")).thenReturn(board);
+        Mockito.when(rowFragmentCache.render("123", board)).thenReturn(Collections.emptyList());
+
+        String etag = client.get().uri("/game?gameId=123").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Cache-Control", "no-cache")
+                .expectBody(String.class).isEqualTo("index")
+                .returnResult().getResponseHeaders().getETag();
+
+        client.get().uri("/game?gameId=123").header("If-None-Match", etag).exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        Mockito.verify(rowFragmentCache, Mockito.times(1)).render("123", board);
+    }
+
+    @Test
+    public void get_game_modifiedByMove() throws Exception {
+        Board moved = BoardFactory.createRandom(1, 3, 3, 1L);
+        Mockito.when(gamesHolder.getGame("123")).thenReturn(moved);
+        Mockito.when(rowFragmentCache.render("123", moved)).thenReturn(Collections.emptyList());
+
+        String etag = client.get().uri("/game?gameId=123").exchange().returnResult(String.class).getResponseHeaders().getETag();
+        for (int i = 0; i < 9; i++) {
+            if (!moved.getLayout().hasBomb(i / 3, i % 3) && moved.getLayout().getBombsAround(i / 3, i % 3) > 0) {
+                moved.check(i / 3, i % 3);
+                break;
+            }
+        }
+
+        String modified = client.get().uri("/game?gameId=123").header("If-None-Match", etag).exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("index")
+                .returnResult().getResponseHeaders().getETag();
+        assertNotEquals(etag, modified);
+    }
+
+    @Test
+    public void get_game_won() throws Exception {
+        Board board = BoardFactory.createRandom(0, 1);
+        board.check(0, 0);
+        Mockito.when(gamesHolder.getGame("123")).thenReturn(board);
+
+        client.get().uri("/game?gameId=123").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("winner");
+    }
+
+    @Test
+    public void get_game_noGame() {
+        String view = client.get().uri("/game").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertEquals("gameOver", view);
+    }
+
+    @Test
+    public void post_saper_ok() throws Exception {
+        Board board = BoardFactory.createRandom(1, 3, 3, 1L);
+        Mockito.when(gamesHolder.action("123", 1, 1)).thenReturn(board);
+        Mockito.when(rowFragmentCache.render("123", board)).thenReturn(Collections.emptyList());
+
+        client.post().uri("/saper").contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .syncBody(SaperController.ATTR_GAME_ID + "=123&action=1:1").exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("index");
+    }
+
+    /**
+     * Renders the name of the view instead of a template.
+     */
+    private static final class ViewNames implements WebFluxConfigurer {
+
+        @Override
+        public void configureViewResolvers(final ViewResolverRegistry registry) {
+            registry.viewResolver((viewName, locale) -> Mono.just(new View() {
+
+                @Override
+                public List<MediaType> getSupportedMediaTypes() {
+                    return Collections.singletonList(MediaType.TEXT_HTML);
+                }
+
+                @Override
+                public Mono<Void> render(final Map<String, ?> model, final MediaType contentType, final ServerWebExchange exchange) {
+                    DataBuffer name = exchange.getResponse().bufferFactory().wrap(viewName.getBytes(StandardCharsets.UTF_8));
+                    return exchange.getResponse().writeWith(Mono.just(name));
+                }
+            }));
+        }
+    }
+}
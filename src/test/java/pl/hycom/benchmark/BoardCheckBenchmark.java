@@ -0,0 +1,62 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.benchmark;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+
+/**
+ * Measures average latency of a single move for growing boards. Not part of the regular build,
+ * run it with {@code mvn test -Dtest=BoardCheckBenchmark}.
+ */
+public class BoardCheckBenchmark {
+
+    private static final int MOVES = 20_000;
+
+    @Test
+    public void checkLatencyForBoardSize() throws GameConfigurationException {
+        for (int boardSize : new int[] { 100, 500, 1000, 2000 }) {
+            Board board = BoardFactory.createRandom(boardSize * boardSize / 5, boardSize);
+            SplittableRandom random = new SplittableRandom(boardSize);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < MOVES; i++) {
+                try {
+                    board.check(random.nextInt(boardSize), random.nextInt(boardSize));
+                } catch (ActionException e) {
+                    // clicked a bomb, the move still counts
+                }
+            }
+            long nanosPerMove = (System.nanoTime() - start) / MOVES;
+
+            System.out.printf("board %4dx%-4d hidden fields %8d  %6d ns/move%n", boardSize, boardSize, board.getHiddenFields(), nanosPerMove);
+        }
+    }
+}
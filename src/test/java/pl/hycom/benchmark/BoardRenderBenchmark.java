@@ -0,0 +1,118 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.model.FieldDTO;
+
+/**
+ * Compares bytes allocated and time of rendering a board from a copied map of new fields, the way
+ * {@link Board#prepareDTO()} used to work, and from the view of shared fields it returns now. Rendering is walking the
+ * map the way the board template does.
+ * Not part of the regular build, run it with {@code mvn test -Dtest=BoardRenderBenchmark}.
+ */
+public class BoardRenderBenchmark {
+
+    private static final int RENDERS = 2_000;
+
+    @Test
+    public void allocationPerRender() throws GameConfigurationException, ActionException {
+        for (int size : new int[] { 8, 30, 100 }) {
+            Board board = BoardFactory.createRandom(size * size / 6, size, size, size);
+            for (int i = 0; i < size; i++) {
+                try {
+                    board.check(i, i);
+                } catch (ActionException e) {
+                    // bomb, the rest of the board stays hidden
+                    break;
+                }
+            }
+
+            measure("copy", size, board, BoardRenderBenchmark::copy);
+            measure("view", size, board, Board::prepareDTO);
+        }
+    }
+
+    private static void measure(final String name, final int size, final Board board, final Function<Board, Map<Integer, List<FieldDTO>>> prepare) {
+        long checksum = 0;
+        for (int i = 0; i < RENDERS; i++) {
+            checksum += render(prepare.apply(board));
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytesBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        for (int i = 0; i < RENDERS; i++) {
+            checksum += render(prepare.apply(board));
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytesBefore;
+
+        System.out.printf("%-4s %3dx%-3d  %9d bytes/render  %8.1f us/render  (checksum %d)%n", name, size, size, bytes / RENDERS, nanos / 1_000.0 / RENDERS,
+                checksum);
+    }
+
+    private static long render(final Map<Integer, List<FieldDTO>> boardContainer) {
+        long checksum = 0;
+        for (Map.Entry<Integer, List<FieldDTO>> row : boardContainer.entrySet()) {
+            int column = 0;
+            for (FieldDTO field : row.getValue()) {
+                if (field.isDisabled()) {
+                    checksum += row.getKey() * 31 + column + field.getValue();
+                }
+                column++;
+            }
+        }
+        return checksum;
+    }
+
+    private static Map<Integer, List<FieldDTO>> copy(final Board board) {
+        // opened fields are only visible through the view, reading them doesn't allocate
+        Map<Integer, List<FieldDTO>> view = board.prepareDTO();
+
+        Map<Integer, List<FieldDTO>> boardContainer = new LinkedHashMap<>();
+        for (int row = 0; row < board.getRows(); row++) {
+            List<FieldDTO> opened = view.get(row);
+            List<FieldDTO> fields = new ArrayList<>(board.getColumns());
+            for (int column = 0; column < board.getColumns(); column++) {
+                boolean hasBomb = board.getLayout().hasBomb(row, column);
+                fields.add(new FieldDTO(hasBomb ? 0 : board.getLayout().getBombsAround(row, column), opened.get(column).isDisabled(), hasBomb));
+            }
+            boardContainer.put(row, fields);
+        }
+        return boardContainer;
+    }
+}
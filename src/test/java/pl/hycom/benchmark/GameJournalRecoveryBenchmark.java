@@ -0,0 +1,117 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.service.GameJournal;
+import pl.hycom.service.GameLocks;
+import pl.hycom.service.GameStore;
+import pl.hycom.service.HeapGameStore;
+
+/**
+ * Measures journal size per move and time of recovering games after restart, with and without a snapshot.
+ * Not part of the regular build, run it with {@code mvn test -Dtest=GameJournalRecoveryBenchmark}.
+ */
+public class GameJournalRecoveryBenchmark {
+
+    private static final int MOVES_PER_GAME = 20;
+
+    @Test
+    public void recoveryTimeForGames() throws Exception {
+        for (int gamesCount : new int[] { 1_000, 10_000, 50_000 }) {
+            Path directory = Files.createTempDirectory("journal");
+            GameStore games = new HeapGameStore();
+
+            GameJournal journal = open(directory);
+            write(journal, games, gamesCount);
+            long journalBytes = size(directory);
+            journal.destroy();
+
+            journal = open(directory);
+            long start = System.nanoTime();
+            int recovered = journal.recover().size();
+            long replayMillis = (System.nanoTime() - start) / 1_000_000;
+
+            journal.snapshot(Collections.singletonList(games), new GameLocks(16));
+            journal.destroy();
+
+            journal = open(directory);
+            start = System.nanoTime();
+            journal.recover();
+            long snapshotMillis = (System.nanoTime() - start) / 1_000_000;
+            journal.destroy();
+
+            System.out.printf("games %6d  recovered %6d  journal %6.1f bytes/move  replay %5d ms  snapshot %5d ms%n", gamesCount, recovered,
+                    (double) journalBytes / (gamesCount * MOVES_PER_GAME), replayMillis, snapshotMillis);
+        }
+    }
+
+    private static void write(final GameJournal journal, final GameStore games, final int gamesCount) throws GameConfigurationException {
+        SplittableRandom random = new SplittableRandom(gamesCount);
+
+        for (int i = 0; i < gamesCount; i++) {
+            long gameId = i;
+            Board board = BoardFactory.createRandom(10, 8, 8, random.nextLong());
+            journal.created(gameId, board, () -> games.put(gameId, board));
+
+            for (int j = 0; j < MOVES_PER_GAME; j++) {
+                int row = random.nextInt(8);
+                int column = random.nextInt(8);
+                try {
+                    journal.moved(gameId, row, column, () -> board.check(row, column));
+                } catch (ActionException e) {
+                    // clicked a bomb, the move is journaled anyway
+                }
+            }
+        }
+    }
+
+    private static GameJournal open(final Path directory) throws IOException {
+        GameJournal journal = new GameJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentSize", 64L * 1024L * 1024L);
+        journal.init();
+        return journal;
+    }
+
+    private static long size(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Test;
+
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.service.GameLocks;
+
+/**
+ * Measures move throughput with growing number of threads when every thread plays its own game and when all of them
+ * play one game, with striped game locks and with one global lock. Not part of the regular build, run it with
+ * {@code mvn test -Dtest=GameLocksContentionBenchmark}.
+ */
+public class GameLocksContentionBenchmark {
+
+    private static final int MOVES_PER_THREAD = 200_000;
+
+    private static final int BOARD_SIZE = 64;
+
+    @Test
+    public void throughputForThreads() throws Exception {
+        GameLocks gameLocks = new GameLocks(1024);
+        Lock globalLock = new ReentrantLock(true);
+
+        for (int threads : new int[] { 1, 2, 4, 8, 16 }) {
+            double striped = movesPerSecond(threads, false, gameLocks::forGame);
+            double global = movesPerSecond(threads, false, gameId -> globalLock);
+            double oneGame = movesPerSecond(threads, true, gameLocks::forGame);
+
+            System.out.printf("threads %2d  own games: striped %10.0f moves/s, global lock %10.0f moves/s  one game: %10.0f moves/s%n", threads, striped,
+                    global, oneGame);
+        }
+    }
+
+    private static double movesPerSecond(final int threads, final boolean oneGame, final LockProvider locks) throws Exception {
+        Board[] boards = new Board[threads];
+        for (int i = 0; i < threads; i++) {
+            boards[i] = oneGame && i > 0 ? boards[0] : board(i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long gameId = oneGame ? 0 : t;
+            Board board = boards[t];
+            SplittableRandom random = new SplittableRandom(t);
+
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < MOVES_PER_THREAD; i++) {
+                    Lock lock = locks.forGame(gameId);
+                    lock.lock();
+                    try {
+                        board.check(random.nextInt(BOARD_SIZE), random.nextInt(BOARD_SIZE));
+                    } catch (ActionException e) {
+                        // clicked a bomb, the move still counts
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        return threads * MOVES_PER_THREAD / seconds;
+    }
+
+    private static Board board(final long seed) throws GameConfigurationException {
+        return BoardFactory.createRandom(BOARD_SIZE * BOARD_SIZE / 5, BOARD_SIZE, BOARD_SIZE, seed);
+    }
+
+    @FunctionalInterface
+    private interface LockProvider {
+
+        Lock forGame(long gameId);
+    }
+}
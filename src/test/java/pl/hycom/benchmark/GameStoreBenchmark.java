@@ -0,0 +1,89 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.service.GameStore;
+import pl.hycom.service.HeapGameStore;
+import pl.hycom.service.OffHeapGameStore;
+
+/**
+ * Compares heap taken by resident games and time of a full collection with games kept on and off the heap.
+ * Not part of the regular build, run it with {@code mvn test -Dtest=GameStoreBenchmark -DargLine=-Xmx4g}.
+ */
+public class GameStoreBenchmark {
+
+    private static final int GAMES = 2_000_000;
+
+    @Test
+    public void heapAndCollectionTimeForStores() throws GameConfigurationException {
+        for (GameStore store : new GameStore[] { new HeapGameStore(), new OffHeapGameStore() }) {
+            SplittableRandom random = new SplittableRandom(GAMES);
+            Board[] layouts = new Board[64];
+            for (int i = 0; i < layouts.length; i++) {
+                layouts[i] = BoardFactory.createRandom(10, 8, 8, random.nextLong());
+            }
+
+            long heapBefore = usedHeapAfterCollection();
+            for (int i = 0; i < GAMES; i++) {
+                store.put(i, BoardFactory.create(layouts[i & 63].getLayout()));
+            }
+            long heap = usedHeapAfterCollection() - heapBefore;
+
+            long collectionsBefore = collectionMillis();
+            long start = System.nanoTime();
+            System.gc();
+            long gcMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("%-16s games %8d  heap %6d MB  full gc %5d ms (collector time %5d ms)%n", store.getClass().getSimpleName(), store.size(),
+                    heap >> 20, gcMillis, collectionMillis() - collectionsBefore);
+
+            for (int i = 0; i < GAMES; i++) {
+                store.remove(i);
+            }
+        }
+    }
+
+    private static long usedHeapAfterCollection() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += collector.getCollectionTime();
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.model.Level;
+import pl.hycom.service.BoardPool;
+import pl.hycom.service.BoardService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BoardPoolTest {
+
+    @Mock
+    private BoardService boardService;
+
+    @InjectMocks
+    private BoardPool boardPool;
+
+    @Before
+    public void init() {
+        ReflectionTestUtils.setField(boardPool, "depth", 4);
+        ReflectionTestUtils.setField(boardPool, "lowWatermark", 1);
+        ReflectionTestUtils.setField(boardPool, "workers", 1);
+    }
+
+    @After
+    public void destroy() throws InterruptedException {
+        boardPool.destroy();
+    }
+
+    @Test
+    public void take_hit() throws GameConfigurationException {
+        Board board = BoardFactory.createEmpty();
+
+        Mockito.when(boardService.createBoard(any(Level.class))).thenReturn(board);
+        ReflectionTestUtils.setField(boardPool, "highWatermark", 3);
+        boardPool.init();
+
+        await().until(() -> boardPool.stats().get(Level.EASY).getSize() == 3);
+
+        assertEquals("Board should be taken from pool", board, boardPool.take(Level.EASY));
+        assertEquals(1, boardPool.stats().get(Level.EASY).getHits());
+        assertEquals(0, boardPool.stats().get(Level.EASY).getMisses());
+    }
+
+    @Test
+    public void take_miss() throws GameConfigurationException {
+        Board board = BoardFactory.createEmpty();
+
+        Mockito.when(boardService.createBoard(Level.HARD)).thenReturn(board);
+        ReflectionTestUtils.setField(boardPool, "highWatermark", 0);
+        boardPool.init();
+
+        assertEquals("Board should be generated when pool is empty", board, boardPool.take(Level.HARD));
+        assertEquals(0, boardPool.stats().get(Level.HARD).getHits());
+        assertEquals(1, boardPool.stats().get(Level.HARD).getMisses());
+    }
+}
@@ -53,6 +53,18 @@ public class BoardServiceTest {
         boardService.createBoard(file);
     }
 
+    @Test
+    public void createBoard_forFile_sharedLayout() throws GameConfigurationException, ActionException {
+        Board board = boardService.createBoard(gameFile);
+        Board secondBoard = boardService.createBoard(gameFile);
+
+        boardService.action(board, 0, 0);
+
+        Assert.assertSame("Layout should be shared", board.getLayout(), secondBoard.getLayout());
+        Assert.assertTrue("Opened fields should not be shared", board.prepareDTO().get(0).get(0).isDisabled());
+        Assert.assertFalse("Opened fields should not be shared", secondBoard.prepareDTO().get(0).get(0).isDisabled());
+    }
+
     @Test
     public void createBoard_forLevel_null() throws GameConfigurationException {
         Level level = null;
@@ -69,6 +81,22 @@ public class BoardServiceTest {
         Assert.assertNotNull("Board should not be null", board);
     }
 
+    @Test
+    public void createBoard_forLevel_seed() throws GameConfigurationException {
+        Board board = boardService.createBoard(Level.HARD);
+
+        Board regenerated = boardService.createBoard(Level.HARD, board.getSeed());
+
+        Assert.assertEquals("Board should be regenerated from seed", board.prepareDTO(), regenerated.prepareDTO());
+    }
+
+    @Test
+    public void createBoard_forLevel_sameSeedSharedLayout() throws GameConfigurationException {
+        Board board = boardService.createBoard(Level.MEDIUM, 7L);
+
+        Assert.assertSame("Layout should be shared", board.getLayout(), boardService.createBoard(Level.MEDIUM, 7L).getLayout());
+    }
+
     @Test(expected = ActionException.class)
     public void action_notValid() throws ActionException, GameConfigurationException {
         Board board = boardService.createBoard(Level.EASY);
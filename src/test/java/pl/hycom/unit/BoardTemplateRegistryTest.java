@@ -0,0 +1,114 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.BoardLayout;
+import pl.hycom.service.BoardTemplateRegistry;
+
+public class BoardTemplateRegistryTest {
+
+    private BoardTemplateRegistry registry;
+
+    private Path directory;
+
+    @Before
+    public void init() throws IOException {
+        registry = new BoardTemplateRegistry();
+        directory = Files.createTempDirectory("templates");
+
+        ReflectionTestUtils.setField(registry, "classpathLocation", "classpath:file/rectangular.txt");
+        ReflectionTestUtils.setField(registry, "directory", directory.toString());
+    }
+
+    @After
+    public void destroy() throws IOException {
+        registry.destroy();
+    }
+
+    @Test
+    public void get_fromClasspath() throws IOException, GameConfigurationException {
+        registry.init();
+
+        BoardLayout layout = registry.get("rectangular");
+        assertEquals(3, layout.getRows());
+        assertEquals(5, layout.getColumns());
+        assertEquals(3, layout.getBombs());
+    }
+
+    @Test
+    public void get_fromDirectory() throws IOException, GameConfigurationException {
+        Files.write(directory.resolve("small.txt"), "1 0\n0 0\n".getBytes(StandardCharsets.US_ASCII));
+        registry.init();
+
+        assertEquals(3, registry.get("rectangular").getRows());
+        assertTrue(registry.get("small").hasBomb(0, 0));
+    }
+
+    @Test(expected = GameConfigurationException.class)
+    public void get_notFound() throws IOException, GameConfigurationException {
+        registry.init();
+
+        registry.get("xxx");
+    }
+
+    @Test
+    public void get_reloaded() throws IOException, GameConfigurationException {
+        Path file = directory.resolve("small.txt");
+        Files.write(file, "1 0\n0 0\n".getBytes(StandardCharsets.US_ASCII));
+        registry.init();
+
+        Files.write(file, "0 0\n0 1\n".getBytes(StandardCharsets.US_ASCII));
+
+        await().until(() -> registry.get("small").hasBomb(1, 1));
+        assertEquals(1, registry.get("small").getBombs());
+    }
+
+    @Test
+    public void get_classpathRestoredAfterDelete() throws IOException, GameConfigurationException {
+        Path file = directory.resolve("rectangular.txt");
+        Files.write(file, "1 0\n0 0\n".getBytes(StandardCharsets.US_ASCII));
+        registry.init();
+        assertEquals(2, registry.get("rectangular").getRows());
+
+        Files.delete(file);
+
+        await().until(() -> registry.get("rectangular").getRows() == 3);
+        assertEquals(3, registry.get("rectangular").getBombs());
+    }
+}
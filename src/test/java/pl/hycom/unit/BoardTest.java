@@ -24,9 +24,15 @@
 package pl.hycom.unit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +47,7 @@ import pl.hycom.exception.GameConfigurationException;
 import pl.hycom.model.Board;
 import pl.hycom.model.Board.BoardFactory;
 import pl.hycom.model.FieldDTO;
+import pl.hycom.model.RevealedCells;
 import pl.hycom.model.State;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -79,6 +86,126 @@ public class BoardTest {
         assertTrue(boardPoints.get(7).get(7).isHasBomb());
     }
 
+    @Test
+    public void testCreateStaticBombsAround() throws GameConfigurationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("file/test.txt").getFile());
+        Board board = BoardFactory.createStatic(file);
+        Map<Integer, List<FieldDTO>> boardPoints = board.prepareDTO();
+
+        assertEquals(0, boardPoints.get(0).get(0).getValue());
+        assertEquals(2, boardPoints.get(0).get(3).getValue());
+        assertEquals(3, boardPoints.get(3).get(6).getValue());
+        assertEquals(1, boardPoints.get(7).get(6).getValue());
+        assertEquals(0, boardPoints.get(0).get(4).getValue());
+    }
+
+    @Test
+    public void testPrepareDTOSharedFields() throws GameConfigurationException, ActionException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("file/test.txt").getFile());
+        Board board = BoardFactory.createStatic(file);
+        Map<Integer, List<FieldDTO>> boardPoints = board.prepareDTO();
+
+        assertSame(FieldDTO.of(2, false, false), boardPoints.get(0).get(3));
+        board.check(0, 3);
+        assertSame("View should show moves made after it was taken", FieldDTO.of(2, true, false), boardPoints.get(0).get(3));
+
+        Map<Integer, List<FieldDTO>> copy = new LinkedHashMap<>();
+        boardPoints.forEach((row, fields) -> copy.put(row, new ArrayList<>(fields)));
+        assertEquals(copy, boardPoints);
+        assertEquals(null, boardPoints.get(8));
+    }
+
+    @Test
+    public void testRowVersionChangesWithOpenedRow() throws GameConfigurationException, ActionException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("file/test.txt").getFile());
+        Board board = BoardFactory.createStatic(file);
+        assertEquals(0, board.getVersion());
+
+        board.check(0, 3);
+        assertEquals(1, board.getVersion());
+        assertEquals(1, board.getRowVersion(0));
+        assertEquals("Rows without opened fields keep their version", 0, board.getRowVersion(1));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        board.export(output, true);
+        Board imported = BoardFactory.createFromBinary(ByteBuffer.wrap(output.toByteArray()));
+        assertEquals(1, imported.getRowVersion(0));
+        assertEquals(1, imported.getVersion());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testPrepareDTOColumnOutOfBoard() throws GameConfigurationException {
+        BoardFactory.createRandom(0, 2).prepareDTO().get(0).get(2);
+    }
+
+    @Test
+    public void testCreateStaticRectangular() throws GameConfigurationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("file/rectangular.txt").getFile());
+        Board board = BoardFactory.createStatic(file);
+
+        assertEquals(3, board.getRows());
+        assertEquals(5, board.getColumns());
+        assertEquals(3, board.getBombs());
+        assertTrue(board.prepareDTO().get(2).get(4).isHasBomb());
+    }
+
+    @Test(expected = GameConfigurationException.class)
+    public void testCreateStaticRowsNotEqual() throws GameConfigurationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("file/uneven.txt").getFile());
+        BoardFactory.createStatic(file);
+    }
+
+    @Test
+    public void testCreateStaticMalformed() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("file/malformed.txt").getFile());
+        try {
+            BoardFactory.createStatic(file);
+            Assert.fail("Malformed file should not be loaded");
+        } catch (GameConfigurationException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("line 2, column 5: unexpected character [x]."));
+        }
+    }
+
+    @Test
+    public void testExportAndCreateFromBinary() throws GameConfigurationException, ActionException, IOException {
+        Board board = BoardFactory.createRandom(20, 10, 70, 11L);
+        board.check(0, 0);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        board.export(output, true);
+        Board imported = BoardFactory.createFromBinary(ByteBuffer.wrap(output.toByteArray()));
+
+        assertEquals(board.prepareDTO(), imported.prepareDTO());
+        assertEquals(board.getHiddenFields(), imported.getHiddenFields());
+        assertEquals(board.state(), imported.state());
+        assertEquals(11L, imported.getSeed());
+    }
+
+    @Test
+    public void testExportWithoutOpenedFields() throws GameConfigurationException, ActionException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        Board board = BoardFactory.createStatic(new File(classLoader.getResource("file/test.txt").getFile()));
+        board.check(0, 0);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        board.export(output, false);
+        Board imported = BoardFactory.createFromBinary(ByteBuffer.wrap(output.toByteArray()));
+
+        assertEquals(8 * 8 - 11, imported.getHiddenFields());
+        Assert.assertFalse(imported.prepareDTO().get(0).get(0).isDisabled());
+    }
+
+    @Test(expected = GameConfigurationException.class)
+    public void testCreateFromBinaryNotBoard() throws GameConfigurationException {
+        BoardFactory.createFromBinary(ByteBuffer.wrap("0 0 1\n".getBytes()));
+    }
+
     @Test(expected = BombException.class)
     public void testCheckClickBomb() throws GameConfigurationException, ActionException {
         ClassLoader classLoader = getClass().getClassLoader();
@@ -98,6 +225,31 @@ public class BoardTest {
         Assert.assertEquals(State.ACTIVE, board.state());
     }
 
+    @Test
+    public void testCheckReturnsRevealedCells() throws GameConfigurationException, ActionException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("file/test.txt").getFile());
+        Board board = BoardFactory.createStatic(file);
+
+        RevealedCells revealed = board.check(0, 0);
+
+        assertEquals(4, revealed.size());
+        assertEquals(0, revealed.getRow(0));
+        assertEquals(0, revealed.getColumn(0));
+        assertTrue(board.check(0, 0).isEmpty());
+    }
+
+    @Test
+    public void testCheckLargeEmptyBoard() throws GameConfigurationException, ActionException {
+        int boardSize = 1000;
+        Board board = BoardFactory.createRandom(0, boardSize);
+
+        RevealedCells revealed = board.check(boardSize / 2, boardSize / 2);
+
+        assertEquals(boardSize * boardSize, revealed.size());
+        Assert.assertEquals(State.WIN, board.state());
+    }
+
     @Test(expected = ActionException.class)
     public void testCheckNegativeRow() throws GameConfigurationException, ActionException {
         ClassLoader classLoader = getClass().getClassLoader();
@@ -122,6 +274,14 @@ public class BoardTest {
         board.check(-1, -3);
     }
 
+    @Test(expected = ActionException.class)
+    public void testCheckColumnOutOfBoard() throws GameConfigurationException, ActionException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("file/test.txt").getFile());
+        Board board = BoardFactory.createStatic(file);
+        board.check(0, 8);
+    }
+
     @Test(expected = GameConfigurationException.class)
     public void testCreateRandomNumberOfBombsHigherThanBoardSize() throws GameConfigurationException {
         BoardFactory.createRandom(37, 6);
@@ -159,6 +319,54 @@ public class BoardTest {
         Assert.assertEquals(numberOfBombs, findedBombs);
     }
 
+    @Test
+    public void testCreateRandomDense() throws GameConfigurationException {
+        int numberOfBombs = 10_000;
+        Board board = BoardFactory.createRandom(numberOfBombs, 200);
+
+        Assert.assertEquals(numberOfBombs, board.getBombs());
+        Assert.assertEquals(200 * 200 - numberOfBombs, board.getHiddenFields());
+    }
+
+    @Test(expected = GameConfigurationException.class, timeout = 5000)
+    public void testCreateRandomImpossibleNumberOfBombs() throws GameConfigurationException {
+        BoardFactory.createRandom(64, 8);
+    }
+
+    @Test
+    public void testCreateRandomSameSeed() throws GameConfigurationException {
+        Board board = BoardFactory.createRandom(40, 16, 30, 42L);
+        Board sameSeed = BoardFactory.createRandom(40, 16, 30, board.getSeed());
+
+        Assert.assertEquals(42L, board.getSeed());
+        Assert.assertEquals(board.prepareDTO(), sameSeed.prepareDTO());
+    }
+
+    @Test
+    public void testCreateRandomRectangular() throws GameConfigurationException, ActionException {
+        int numberOfBombs = 5;
+        Board board = BoardFactory.createRandom(numberOfBombs, 3, 20);
+
+        Map<Integer, List<FieldDTO>> boardPoints = board.prepareDTO();
+
+        Assert.assertEquals(3, boardPoints.size());
+        Assert.assertEquals(20, boardPoints.get(2).size());
+        Assert.assertEquals(numberOfBombs, board.getBombs());
+    }
+
+    @Test
+    public void testCreateRandomAllocatesOnlyTouchedTiles() throws GameConfigurationException {
+        Board board = BoardFactory.createRandom(0, 2000, 3000);
+
+        Assert.assertEquals(0, board.getAllocatedBytes());
+        Assert.assertEquals(0, board.getLayout().getAllocatedBytes());
+    }
+
+    @Test(expected = GameConfigurationException.class)
+    public void testCreateRandomTooManyFields() throws GameConfigurationException {
+        BoardFactory.createRandom(1, 100_000, 100_000);
+    }
+
     @Test
     public void testCheckIfUserWinner() throws GameConfigurationException, ActionException {
         ClassLoader classLoader = getClass().getClassLoader();
@@ -201,22 +409,4 @@ public class BoardTest {
         Assert.assertEquals(State.WIN, board.state());
     }
 
-    @Test
-    public void testUpdateStateIfSessionExpiredActive() throws GameConfigurationException {
-        int numberOfBombs = 6;
-        int boardSize = 10;
-        Board board = BoardFactory.createRandom(numberOfBombs, boardSize);
-        board.updateStateIfGameExpired(600);
-        Assert.assertEquals(State.ACTIVE, board.state());
-    }
-
-    @Test
-    public void testUpdateStateIfSessionExpiredFail() throws GameConfigurationException {
-        int numberOfBombs = 6;
-        int boardSize = 10;
-        Board board = BoardFactory.createRandom(numberOfBombs, boardSize);
-        board.updateStateIfGameExpired(0);
-        Assert.assertEquals(State.FAIL, board.state());
-    }
-
 }
@@ -0,0 +1,111 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import pl.hycom.service.ExpiryWheel;
+
+public class ExpiryWheelTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long now = 1000 * SECOND;
+
+    private final ExpiryWheel wheel = new ExpiryWheel(SECOND, 16, () -> now);
+
+    @Test
+    public void tick_expiresAfterTimeToLive() {
+        wheel.add(1L, 10 * SECOND);
+
+        now += 9 * SECOND;
+        assertTrue(wheel.tick().isEmpty());
+
+        now += SECOND;
+        assertEquals(Collections.singletonList(1L), wheel.tick());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void tick_expiresWithinTickAfterDeadline() {
+        now += SECOND / 2;
+        wheel.add(1L, 10 * SECOND);
+
+        now += 10 * SECOND;
+        assertTrue(wheel.tick().isEmpty());
+
+        now += SECOND / 2;
+        assertEquals(Collections.singletonList(1L), wheel.tick());
+    }
+
+    @Test
+    public void tick_touchedGameLivesLonger() {
+        wheel.add(2L, 10 * SECOND);
+        wheel.add(3L, 10 * SECOND);
+
+        now += 5 * SECOND;
+        wheel.touch(3L);
+
+        now += 5 * SECOND;
+        assertEquals(Collections.singletonList(2L), wheel.tick());
+
+        now += 5 * SECOND;
+        assertEquals(Collections.singletonList(3L), wheel.tick());
+    }
+
+    @Test
+    public void tick_timeToLiveLongerThanRing() {
+        wheel.add(1L, 40 * SECOND);
+
+        for (int i = 0; i < 39; i++) {
+            now += SECOND;
+            assertTrue(wheel.tick().isEmpty());
+        }
+
+        now += SECOND;
+        assertEquals(Collections.singletonList(1L), wheel.tick());
+    }
+
+    @Test
+    public void tick_expireAndRemove() {
+        wheel.add(4L, 10 * SECOND);
+        wheel.add(5L, 10 * SECOND);
+        wheel.add(6L, 0);
+
+        wheel.expire(4L);
+        wheel.remove(5L);
+
+        assertEquals(Arrays.asList(6L, 4L), wheel.tick());
+
+        now += 20 * SECOND;
+        assertTrue(wheel.tick().isEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import pl.hycom.service.FileGameRepository;
+import pl.hycom.service.GameRepository.StoredGame;
+
+public class FileGameRepositoryTest {
+
+    private Path directory;
+
+    private FileGameRepository first;
+
+    private FileGameRepository second;
+
+    @Before
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("games");
+        first = open();
+        second = open();
+    }
+
+    @Test
+    public void compareAndSet_sharedBetweenRepositories() {
+        assertTrue(first.create(1L, new byte[] { 1 }));
+        assertFalse(second.create(1L, new byte[] { 2 }));
+
+        StoredGame stored = second.load(1L);
+        assertEquals(1, stored.getVersion());
+        assertArrayEquals(new byte[] { 1 }, stored.getState());
+
+        assertTrue(first.compareAndSet(1L, 1, new byte[] { 3, 4 }));
+        assertFalse("Version 1 was already replaced", second.compareAndSet(1L, 1, new byte[] { 5 }));
+
+        stored = second.load(1L);
+        assertEquals(2, stored.getVersion());
+        assertArrayEquals(new byte[] { 3, 4 }, stored.getState());
+        assertTrue(second.compareAndSet(1L, 2, new byte[] { 5 }));
+        assertArrayEquals(new byte[] { 5 }, first.load(1L).getState());
+    }
+
+    @Test
+    public void load_notFound() {
+        assertNull(first.load(1L));
+        assertFalse(first.compareAndSet(1L, 1, new byte[] { 1 }));
+
+        first.create(1L, new byte[] { 1 });
+        second.remove(1L);
+        assertNull(first.load(1L));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void load_corrupted() throws IOException {
+        first.create(-1L, new byte[] { 1, 2, 3 });
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Path file = files.findFirst().get();
+            Files.write(file, new byte[] { 9 }, StandardOpenOption.WRITE);
+        }
+
+        first.load(-1L);
+    }
+
+    @Test
+    public void removeIdle() throws IOException {
+        first.create(1L, new byte[] { 1 });
+        first.create(2L, new byte[] { 2 });
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Path file = files.filter(path -> path.getFileName().toString().startsWith("1.")).findFirst().get();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+        }
+
+        assertEquals(1, second.removeIdle(60_000));
+        assertNull(first.load(1L));
+        assertEquals(1, first.load(2L).getVersion());
+    }
+
+    private FileGameRepository open() throws IOException {
+        FileGameRepository repository = new FileGameRepository();
+        ReflectionTestUtils.setField(repository, "directory", directory.toString());
+        repository.init();
+        return repository;
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import pl.hycom.controller.GameApiController;
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.BombException;
+import pl.hycom.exception.GameNotFoundException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.model.RevealedCells;
+import pl.hycom.service.GameEvents;
+import pl.hycom.service.GamesHolder;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GameApiControllerTest {
+
+    @Mock
+    private GamesHolder gamesHolder;
+
+    @Mock
+    private GameEvents gameEvents;
+
+    @InjectMocks
+    private GameApiController gameApiController;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void init() {
+        mockMvc = standaloneSetup(gameApiController).build();
+    }
+
+    @Test
+    public void move_revealedCellsOnly() throws Exception {
+        Board board = BoardFactory.createRandom(0, 2);
+        RevealedCells revealed = board.check(1, 0);
+
+        Mockito.when(gamesHolder.moves(Mockito.eq("123"), aryEq(new int[] { 1, 0 })))
+                .thenReturn(new GamesHolder.Batch(board, Collections.singletonList(revealed), 1, null));
+
+        mockMvc.perform(post("/api/games/123/moves").contentType(MediaType.APPLICATION_JSON).content("{\"row\":1,\"column\":0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("WIN"))
+                .andExpect(jsonPath("$.hiddenFields").value(0))
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.cells.length()").value(12))
+                .andExpect(jsonPath("$.cells[0]").value(1))
+                .andExpect(jsonPath("$.cells[1]").value(0))
+                .andExpect(jsonPath("$.cells[2]").value(0));
+    }
+
+    @Test
+    public void moves_combinedCells() throws Exception {
+        Board board = BoardFactory.createRandom(2, 3, 3, 1L);
+        int[] moves = new int[4];
+        RevealedCells[] revealed = new RevealedCells[2];
+        for (int i = 0, found = 0; found < 2; i++) {
+            if (!board.getLayout().hasBomb(i / 3, i % 3) && board.getLayout().getBombsAround(i / 3, i % 3) > 0) {
+                moves[found * 2] = i / 3;
+                moves[found * 2 + 1] = i % 3;
+                revealed[found++] = board.check(i / 3, i % 3);
+            }
+        }
+
+        Mockito.when(gamesHolder.moves(Mockito.eq("123"), aryEq(moves))).thenReturn(new GamesHolder.Batch(board, Arrays.asList(revealed), 2, null));
+
+        mockMvc.perform(post("/api/games/123/moves/batch").contentType(MediaType.APPLICATION_JSON).content(Arrays.toString(moves)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("ACTIVE"))
+                .andExpect(jsonPath("$.applied").value(2))
+                .andExpect(jsonPath("$.cells.length()").value(6))
+                .andExpect(jsonPath("$.cells[3]").value(moves[2]))
+                .andExpect(jsonPath("$.cells[4]").value(moves[3]));
+    }
+
+    @Test
+    public void move_bomb() throws Exception {
+        Board board = BoardFactory.createRandom(1, 1);
+        BombException bomb = null;
+        try {
+            board.check(0, 0);
+        } catch (BombException e) {
+            bomb = e;
+        }
+
+        Mockito.when(gamesHolder.moves(Mockito.eq("123"), aryEq(new int[] { 0, 0 }))).thenReturn(new GamesHolder.Batch(board, Collections.emptyList(), 1, bomb));
+
+        mockMvc.perform(post("/api/games/123/moves").contentType(MediaType.APPLICATION_JSON).content("{\"row\":0,\"column\":0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("FAIL"));
+    }
+
+    @Test
+    public void moves_notPairs() throws Exception {
+        Mockito.when(gamesHolder.moves(Mockito.eq("123"), aryEq(new int[] { 0, 0, 1 }))).thenThrow(new ActionException("test"));
+
+        mockMvc.perform(post("/api/games/123/moves/batch").contentType(MediaType.APPLICATION_JSON).content("[0, 0, 1]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void move_noGame() throws Exception {
+        Mockito.when(gamesHolder.moves(Mockito.eq("123"), aryEq(new int[] { 0, 0 }))).thenThrow(new GameNotFoundException("test"));
+
+        mockMvc.perform(post("/api/games/123/moves").contentType(MediaType.APPLICATION_JSON).content("{\"row\":0,\"column\":0}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void events_noGame() throws Exception {
+        Mockito.when(gamesHolder.getGame("123")).thenThrow(new GameNotFoundException("test"));
+
+        mockMvc.perform(get("/api/games/123/events").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+        Mockito.verifyZeroInteractions(gameEvents);
+    }
+}
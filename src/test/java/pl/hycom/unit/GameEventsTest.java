@@ -0,0 +1,291 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import pl.hycom.model.MoveResultDTO;
+import pl.hycom.model.State;
+import pl.hycom.service.GameEvents;
+
+public class GameEventsTest {
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private final GameEvents gameEvents = new GameEvents() {
+
+        @Override
+        protected SseEmitter createEmitter(final long timeout) {
+            RecordingEmitter emitter = new RecordingEmitter();
+            emitters.add(emitter);
+            return emitter;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(gameEvents, "queueSize", 2);
+        gameEvents.init();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        gameEvents.destroy();
+    }
+
+    @Test
+    public void moved_sentToEverySubscriberUntilGameEnds() throws InterruptedException {
+        gameEvents.subscribe(1L);
+        gameEvents.subscribe(1L);
+        assertTrue(gameEvents.hasSubscribers(1L));
+        assertFalse(gameEvents.hasSubscribers(2L));
+        assertEquals(2, gameEvents.subscriberCount());
+
+        gameEvents.moved(1L, new MoveResultDTO(State.ACTIVE, 5, 1, new int[] { 0, 0, 1 }));
+        gameEvents.moved(1L, new MoveResultDTO(State.WIN, 0, 1, new int[] { 0, 1, 1 }));
+
+        for (RecordingEmitter emitter : emitters) {
+            assertTrue("Stream should end with the game", emitter.completed.await(5, TimeUnit.SECONDS));
+            assertEquals(2, emitter.events.size());
+            assertTrue(emitter.events.get(0).startsWith("event:move"));
+        }
+        assertFalse(gameEvents.hasSubscribers(1L));
+        assertEquals(0, gameEvents.subscriberCount());
+    }
+
+    @Test
+    public void expired_endsStream() throws InterruptedException {
+        gameEvents.subscribe(1L);
+
+        gameEvents.expired(1L);
+
+        RecordingEmitter emitter = emitters.get(0);
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(emitter.events.get(0).startsWith("event:expired"));
+        assertFalse(gameEvents.hasSubscribers(1L));
+    }
+
+    @Test
+    public void moved_slowSubscriberLagged() throws InterruptedException {
+        gameEvents.subscribe(1L);
+        RecordingEmitter slow = emitters.get(0);
+        slow.blocked = new CountDownLatch(1);
+
+        gameEvents.moved(1L, new MoveResultDTO(State.ACTIVE, 5, 1, new int[0]));
+        await().until(() -> slow.sending);
+        for (int i = 0; i < 3; i++) {
+            gameEvents.moved(1L, new MoveResultDTO(State.ACTIVE, 5, 1, new int[0]));
+        }
+        assertFalse("Subscriber over the queue size should be dropped at once", gameEvents.hasSubscribers(1L));
+
+        slow.blocked.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(2, slow.events.size());
+        assertTrue(slow.events.get(1).startsWith("event:lagged"));
+    }
+
+    @Test
+    public void moved_laggedWhileSenderTakesEvent() throws InterruptedException {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch asked = new CountDownLatch(1);
+        CountDownLatch answered = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        gameEvents.subscribe(1L, new GameEvents.EventSink() {
+
+            @Override
+            public void send(final String name, final Object data) {
+                sent.add(name);
+            }
+
+            @Override
+            public void complete() {
+                completed.countDown();
+            }
+
+            @Override
+            public void fail(final Throwable e) {
+                sent.add("fail");
+            }
+
+            @Override
+            public boolean ready() {
+                // holds the sender between looking at the event and taking it from the queue
+                asked.countDown();
+                try {
+                    answered.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        });
+
+        gameEvents.moved(1L, new MoveResultDTO(State.ACTIVE, 5, 1, new int[0]));
+        assertTrue(asked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 2; i++) {
+            gameEvents.moved(1L, new MoveResultDTO(State.ACTIVE, 5, 1, new int[0]));
+        }
+        answered.countDown();
+
+        assertTrue("Stream should end with lagged", completed.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("move", "lagged"), sent);
+    }
+
+    @Test
+    public void moved_heldBackUntilSinkReady() {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        AtomicBoolean ready = new AtomicBoolean();
+        GameEvents.Subscription subscription = gameEvents.subscribe(1L, new GameEvents.EventSink() {
+
+            @Override
+            public void send(final String name, final Object data) {
+                sent.add(name);
+            }
+
+            @Override
+            public void complete() {
+                sent.add("complete");
+            }
+
+            @Override
+            public void fail(final Throwable e) {
+                sent.add("fail");
+            }
+
+            @Override
+            public boolean ready() {
+                return ready.get();
+            }
+        });
+
+        gameEvents.moved(1L, new MoveResultDTO(State.ACTIVE, 5, 1, new int[0]));
+        gameEvents.moved(1L, new MoveResultDTO(State.ACTIVE, 4, 1, new int[0]));
+        assertTrue("Nothing should be sent to a sink which isn't ready", sent.isEmpty());
+
+        ready.set(true);
+        subscription.resume();
+        await().until(() -> sent.size() == 2);
+
+        subscription.cancel();
+        assertFalse(gameEvents.hasSubscribers(1L));
+    }
+
+    @Test
+    public void moved_stuckWriteDoesNotBlockOthers() throws InterruptedException {
+        gameEvents.destroy();
+        ReflectionTestUtils.setField(gameEvents, "workers", 1);
+        ReflectionTestUtils.setField(gameEvents, "writeTimeoutMillis", 100L);
+        gameEvents.init();
+
+        CountDownLatch released = new CountDownLatch(1);
+        AtomicBoolean failed = new AtomicBoolean();
+        gameEvents.subscribe(1L, new GameEvents.EventSink() {
+
+            @Override
+            public void send(final String name, final Object data) {
+                // a blocked socket write, it doesn't care about interrupts
+                while (released.getCount() > 0) {
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        // keeps blocking
+                    }
+                }
+            }
+
+            @Override
+            public void complete() {
+            }
+
+            @Override
+            public void fail(final Throwable e) {
+                failed.set(true);
+            }
+        });
+        gameEvents.subscribe(2L);
+
+        try {
+            gameEvents.moved(1L, new MoveResultDTO(State.ACTIVE, 5, 1, new int[0]));
+            gameEvents.moved(2L, new MoveResultDTO(State.WIN, 0, 1, new int[0]));
+
+            RecordingEmitter emitter = emitters.get(0);
+            assertTrue("Second subscriber should get its events while the first write is stuck", emitter.completed.await(5, TimeUnit.SECONDS));
+            assertEquals(1, emitter.events.size());
+            await().atMost(5, TimeUnit.SECONDS).until(() -> !gameEvents.hasSubscribers(1L));
+        } finally {
+            released.countDown();
+        }
+        await().until(failed::get);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        private volatile CountDownLatch blocked = new CountDownLatch(0);
+
+        private volatile boolean sending;
+
+        @Override
+        public void send(final SseEventBuilder builder) throws IOException {
+            sending = true;
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+
+            StringBuilder event = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                event.append(data.getData());
+            }
+            events.add(event.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed.countDown();
+        }
+    }
+}
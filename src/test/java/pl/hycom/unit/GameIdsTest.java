@@ -0,0 +1,82 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import pl.hycom.exception.GameNotFoundException;
+import pl.hycom.service.GameIds;
+
+public class GameIdsTest {
+
+    @Test
+    public void next_unique() {
+        GameIds gameIds = new GameIds(new Random(1));
+        Set<Long> ids = new HashSet<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue("Id should not repeat", ids.add(gameIds.next()));
+        }
+    }
+
+    @Test
+    public void next_notSequential() {
+        GameIds gameIds = new GameIds(new Random(2));
+
+        long first = gameIds.next();
+        long second = gameIds.next();
+        assertTrue("Following ids should differ in many bits", Long.bitCount(first ^ second) > 8);
+    }
+
+    @Test
+    public void format_parse() throws GameNotFoundException {
+        for (long id : new long[] { 0, 1, 61, 62, Long.MAX_VALUE, Long.MIN_VALUE, -1 }) {
+            String token = GameIds.format(id);
+            assertTrue(token.length() <= 11);
+            assertEquals(id, GameIds.parse(token));
+        }
+    }
+
+    @Test(expected = GameNotFoundException.class)
+    public void parse_null() throws GameNotFoundException {
+        GameIds.parse(null);
+    }
+
+    @Test(expected = GameNotFoundException.class)
+    public void parse_invalidCharacter() throws GameNotFoundException {
+        GameIds.parse("abc-def");
+    }
+
+    @Test(expected = GameNotFoundException.class)
+    public void parse_overflow() throws GameNotFoundException {
+        GameIds.parse("zzzzzzzzzzz");
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import pl.hycom.exception.ActionException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.service.GameJournal;
+import pl.hycom.service.GameLocks;
+import pl.hycom.service.GameStore;
+import pl.hycom.service.HeapGameStore;
+import pl.hycom.service.LongMap;
+
+public class GameJournalTest {
+
+    private Path directory;
+
+    private GameJournal journal;
+
+    @Before
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("journal");
+        journal = open();
+    }
+
+    @After
+    public void destroy() throws InterruptedException, IOException {
+        journal.destroy();
+    }
+
+    @Test
+    public void recover_moves() throws Exception {
+        GameStore games = new HeapGameStore();
+        Board board = BoardFactory.createRandom(5, 10, 12, 42L);
+        journal.created(1L, board, () -> games.put(1L, board));
+        move(1L, board, 0, 0);
+        move(1L, board, 9, 11);
+
+        Board recovered = reopen().get(1L);
+
+        assertBoardEquals(board, recovered);
+    }
+
+    @Test
+    public void recover_snapshot() throws Exception {
+        GameStore games = new HeapGameStore();
+        Board first = BoardFactory.createRandom(5, 10, 10, 1L);
+        Board second = BoardFactory.createRandom(5, 10, 10, 2L);
+        journal.created(1L, first, () -> games.put(1L, first));
+        journal.created(2L, second, () -> games.put(2L, second));
+        move(1L, first, 0, 0);
+
+        journal.snapshot(Collections.singletonList(games), new GameLocks(16));
+        move(1L, first, 5, 5);
+        journal.removed(2L, () -> games.remove(2L));
+
+        LongMap<Board> recovered = reopen();
+
+        assertEquals(1, recovered.size());
+        assertBoardEquals(first, recovered.get(1L));
+        assertFalse("Segments before snapshot should be deleted", Files.exists(directory.resolve("journal-0.log")));
+    }
+
+    @Test
+    public void recover_tornFrame() throws Exception {
+        Board board = BoardFactory.createRandom(5, 10, 10, 3L);
+        journal.created(1L, board, () -> {
+        });
+        move(1L, board, 0, 0);
+        journal.destroy();
+
+        Path segment = directory.resolve("journal-0.log");
+        Files.write(segment, new byte[] { 0, 0, 0, 9, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        journal = open();
+        assertBoardEquals(board, journal.recover().get(1L));
+    }
+
+    @Test
+    public void created_nextNumberAfterRecovery() throws Exception {
+        GameStore games = new HeapGameStore();
+        Board board = BoardFactory.createRandom(5, 10, 10, 4L);
+        journal.created(1L, board, () -> games.put(1L, board));
+
+        reopen();
+        Board second = BoardFactory.createRandom(5, 10, 10, 5L);
+        journal.created(2L, second, () -> {
+        });
+        move(2L, second, 9, 9);
+
+        LongMap<Board> recovered = reopen();
+        assertBoardEquals(board, recovered.get(1L));
+        assertBoardEquals(second, recovered.get(2L));
+    }
+
+    @Test
+    public void batch_singleFrame() throws Exception {
+        GameStore games = new HeapGameStore();
+        Board board = BoardFactory.createRandom(5, 10, 12, 6L);
+        journal.created(1L, board, () -> games.put(1L, board));
+
+        GameJournal.MoveBatch batch = journal.batch(1L);
+        try {
+            for (int column = 0; column < 12; column++) {
+                int col = column;
+                try {
+                    batch.moved(9, col, () -> board.check(9, col));
+                } catch (ActionException e) {
+                    // bomb, the move is journaled anyway
+                }
+            }
+        } finally {
+            batch.await();
+        }
+        journal.destroy();
+
+        assertEquals("Created game and the batch should be flushed once each", 2, frames(directory.resolve("journal-0.log")));
+        journal = open();
+        assertBoardEquals(board, journal.recover().get(1L));
+    }
+
+    private static int frames(final Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int frames = 0;
+        while (buffer.remaining() >= 8) {
+            int length = buffer.getInt();
+            buffer.getInt();
+            buffer.position(buffer.position() + length);
+            frames++;
+        }
+        return frames;
+    }
+
+    private void move(final long gameId, final Board board, final int row, final int column) {
+        try {
+            journal.moved(gameId, row, column, () -> board.check(row, column));
+        } catch (ActionException e) {
+            // bomb, the move is journaled anyway
+        }
+    }
+
+    private LongMap<Board> reopen() throws InterruptedException, IOException {
+        journal.destroy();
+        journal = open();
+        return journal.recover();
+    }
+
+    private GameJournal open() throws IOException {
+        GameJournal opened = new GameJournal();
+        ReflectionTestUtils.setField(opened, "enabled", true);
+        ReflectionTestUtils.setField(opened, "directory", directory.toString());
+        ReflectionTestUtils.setField(opened, "segmentSize", 1024L * 1024L);
+        opened.init();
+        return opened;
+    }
+
+    private static void assertBoardEquals(final Board expected, final Board actual) {
+        assertEquals(expected.state(), actual.state());
+        assertEquals(expected.getHiddenFields(), actual.getHiddenFields());
+        assertEquals(expected.prepareDTO(), actual.prepareDTO());
+    }
+}
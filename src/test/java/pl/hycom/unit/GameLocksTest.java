@@ -0,0 +1,92 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.Test;
+
+import pl.hycom.exception.ActionException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.model.FieldDTO;
+import pl.hycom.service.GameLocks;
+
+public class GameLocksTest {
+
+    @Test
+    public void forGame_sameLockForGame() {
+        GameLocks locks = new GameLocks(64);
+
+        assertSame(locks.forGame(42L), locks.forGame(42L));
+        assertNotSame(locks.forGame(1L), locks.forGame(2L));
+    }
+
+    @Test
+    public void forGame_concurrentMovesKeepBoardConsistent() throws Exception {
+        GameLocks locks = new GameLocks(64);
+        Board board = BoardFactory.createRandom(3_000, 100, 100, 11L);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<?>> moves = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            moves.add(executor.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    Lock lock = locks.forGame(7L);
+                    lock.lock();
+                    try {
+                        board.check(random.nextInt(100), random.nextInt(100));
+                    } catch (ActionException e) {
+                        // bomb, the board stays consistent
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }));
+        }
+        for (Future<?> move : moves) {
+            move.get();
+        }
+        executor.shutdown();
+
+        int opened = 0;
+        for (List<FieldDTO> row : board.prepareDTO().values()) {
+            for (FieldDTO field : row) {
+                opened += field.isDisabled() ? 1 : 0;
+            }
+        }
+        assertEquals(100 * 100 - board.getBombs() - opened, board.getHiddenFields());
+    }
+}
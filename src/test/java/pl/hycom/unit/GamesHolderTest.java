@@ -24,25 +24,44 @@
 package pl.hycom.unit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import pl.hycom.exception.ActionException;
 import pl.hycom.exception.GameConfigurationException;
 import pl.hycom.exception.GameNotFoundException;
 import pl.hycom.model.Board;
 import pl.hycom.model.Board.BoardFactory;
 import pl.hycom.model.Level;
+import pl.hycom.model.MoveResultDTO;
+import pl.hycom.model.State;
+import pl.hycom.service.BoardPool;
 import pl.hycom.service.BoardService;
+import pl.hycom.service.BoardTemplateRegistry;
+import pl.hycom.service.GameEvents;
+import pl.hycom.service.GameJournal;
+import pl.hycom.service.GameRepository;
+import pl.hycom.service.GameShard;
+import pl.hycom.service.GameStore;
 import pl.hycom.service.GamesHolder;
+import pl.hycom.service.HeapGameStore;
+import pl.hycom.service.InMemoryGameRepository;
 
 @RunWith(MockitoJUnitRunner.class)
 public class GamesHolderTest {
@@ -50,9 +69,37 @@ public class GamesHolderTest {
     @Mock
     private BoardService boardService;
 
+    @Mock
+    private BoardPool boardPool;
+
+    @Mock
+    private BoardTemplateRegistry templateRegistry;
+
+    @Spy
+    private GameJournal gameJournal = new GameJournal();
+
+    @Spy
+    private GameEvents gameEvents = new GameEvents();
+
+    @Mock
+    private ObjectProvider<GameStore> gameStores;
+
     @InjectMocks
     private GamesHolder gamesHolder;
 
+    @Before
+    public void setUp() throws IOException {
+        Mockito.when(gameStores.getObject()).thenAnswer(invocation -> new HeapGameStore());
+        ReflectionTestUtils.setField(gamesHolder, "shardCount", 4);
+
+        gamesHolder.init();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        gamesHolder.destroy();
+    }
+
     @Test
     public void initGame_fromFile() throws GameNotFoundException, IOException, GameConfigurationException {
         File file = File.createTempFile("test", ".tmp");
@@ -78,7 +125,7 @@ public class GamesHolderTest {
     public void initGame_forLevel_enum() throws GameNotFoundException, GameConfigurationException {
         Board board = BoardFactory.createEmpty();
 
-        Mockito.when(boardService.createBoard(Level.HARD)).thenReturn(board);
+        Mockito.when(boardPool.take(Level.HARD)).thenReturn(board);
 
         String gameId = gamesHolder.initGame("hard");
         assertEquals("Board state not created correctly", board, gamesHolder.getGame(gameId));
@@ -87,7 +134,7 @@ public class GamesHolderTest {
     public void initGame_forLevel_null() throws GameNotFoundException, GameConfigurationException {
         Board board = BoardFactory.createEmpty();
 
-        Mockito.when(boardService.createBoard(Level.EASY)).thenReturn(board);
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
 
         String level = null;
         String gameId = gamesHolder.initGame(level);
@@ -97,21 +144,201 @@ public class GamesHolderTest {
     public void initGame_forLevel_xxx() throws GameNotFoundException, GameConfigurationException {
         Board board = BoardFactory.createEmpty();
 
-        Mockito.when(boardService.createBoard(Level.EASY)).thenReturn(board);
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
 
         String gameId = gamesHolder.initGame("xxx");
         assertEquals("Board state not created correctly", board, gamesHolder.getGame(gameId));
     }
 
+    @Test
+    public void initGame_fromTemplate() throws GameNotFoundException, GameConfigurationException {
+        Board board = BoardFactory.createRandom(1, 4);
+
+        Mockito.when(templateRegistry.get("test")).thenReturn(board.getLayout());
+
+        String gameId = gamesHolder.initGameFromTemplate("test");
+        assertEquals("Board should share template layout", board.getLayout(), gamesHolder.getGame(gameId).getLayout());
+    }
+
+    @Test(expected = GameConfigurationException.class)
+    public void initGame_fromTemplate_notFound() throws GameConfigurationException {
+        Mockito.when(templateRegistry.get("xxx")).thenThrow(new GameConfigurationException("test"));
+
+        gamesHolder.initGameFromTemplate("xxx");
+    }
+
+    @Test
+    public void action() throws GameNotFoundException, GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(0, 2);
+
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
+        Mockito.doCallRealMethod().when(boardService).action(board, 1, 1);
+
+        String gameId = gamesHolder.initGame("easy");
+        assertEquals(board, gamesHolder.action(gameId, 1, 1));
+        assertEquals(State.WIN, board.state());
+    }
+
+    @Test
+    public void move_revealedCells() throws GameNotFoundException, GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(0, 3);
+
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
+        Mockito.doCallRealMethod().when(boardService).action(board, 2, 2);
+
+        String gameId = gamesHolder.initGame("easy");
+        GamesHolder.Move move = gamesHolder.move(gameId, 2, 2);
+        assertEquals(board, move.getBoard());
+        assertEquals("Empty board should open at once", 9, move.getRevealed().size());
+        assertEquals(2, move.getRevealed().getRow(0));
+        assertEquals(2, move.getRevealed().getColumn(0));
+    }
+
+    @Test
+    public void moves_stopAtGameEnd() throws GameNotFoundException, GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(0, 2);
+
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
+        Mockito.doCallRealMethod().when(boardService).action(board, 0, 0);
+
+        String gameId = gamesHolder.initGame("easy");
+        GamesHolder.Batch batch = gamesHolder.moves(gameId, new int[] { 0, 0, 1, 1, 5, 5 });
+        assertEquals("Moves after the win should be skipped", 1, batch.getApplied());
+        assertEquals(4, batch.getRevealed().get(0).size());
+        assertEquals(State.WIN, batch.getBoard().state());
+        assertEquals(null, batch.getFailure());
+    }
+
+    @Test
+    public void moves_publishedToSubscribers() throws GameNotFoundException, GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(0, 2);
+
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
+        Mockito.doCallRealMethod().when(boardService).action(board, 0, 0);
+        Mockito.doReturn(true).when(gameEvents).hasSubscribers(Mockito.anyLong());
+        Mockito.doNothing().when(gameEvents).moved(Mockito.anyLong(), Mockito.any(MoveResultDTO.class));
+
+        gamesHolder.moves(gamesHolder.initGame("easy"), new int[] { 0, 0 });
+
+        ArgumentCaptor<MoveResultDTO> result = ArgumentCaptor.forClass(MoveResultDTO.class);
+        Mockito.verify(gameEvents).moved(Mockito.anyLong(), result.capture());
+        assertEquals(State.WIN, result.getValue().getState());
+        assertEquals(1, result.getValue().getApplied());
+    }
+
+    @Test(expected = ActionException.class)
+    public void moves_notPairs() throws GameNotFoundException, ActionException {
+        gamesHolder.moves("abc", new int[] { 0 });
+    }
+
     @Test(expected = GameNotFoundException.class)
     public void gamesSupervisor() throws GameNotFoundException, GameConfigurationException {
         Board board = BoardFactory.createEmpty();
 
-        Mockito.when(boardService.createBoard(Level.EASY)).thenReturn(board);
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
         ReflectionTestUtils.setField(gamesHolder, "secondsAfterGameExpires", 0);
 
         String gameId = gamesHolder.initGame("easy");
         gamesHolder.gamesSupervisor();
         gamesHolder.getGame(gameId);
     }
+
+    @Test
+    public void stats() throws GameNotFoundException, GameConfigurationException, ActionException {
+        Mockito.when(boardPool.take(Level.EASY)).thenAnswer(invocation -> BoardFactory.createRandom(0, 2));
+        Mockito.doCallRealMethod().when(boardService).action(Mockito.any(Board.class), Mockito.eq(0), Mockito.eq(0));
+
+        for (int i = 0; i < 100; i++) {
+            gamesHolder.action(gamesHolder.initGame("easy"), 0, 0);
+        }
+
+        List<GameShard.Stats> stats = gamesHolder.stats();
+        assertEquals(4, stats.size());
+        assertEquals(100, stats.stream().mapToInt(GameShard.Stats::getGames).sum());
+        assertEquals(100, stats.stream().mapToLong(GameShard.Stats::getMoves).sum());
+        // a move on an empty 2x2 board opens one tile of two longs
+        assertEquals(100 * 2 * Long.BYTES, stats.stream().mapToLong(GameShard.Stats::getAllocatedBytes).sum());
+        for (GameShard.Stats shard : stats) {
+            assertNotEquals("Games should be spread over all shards", 0, shard.getGames());
+            assertEquals(shard.getAdded(), shard.getGames());
+        }
+    }
+
+    @Test
+    public void action_sharedBetweenInstances() throws IOException, InterruptedException, GameNotFoundException, GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(10, 4, 4, 3L);
+        Board expected = BoardFactory.createRandom(10, 4, 4, 3L);
+
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
+        Mockito.doCallRealMethod().when(boardService).action(Mockito.any(Board.class), Mockito.anyInt(), Mockito.anyInt());
+
+        GameRepository repository = new InMemoryGameRepository();
+        GamesHolder first = sharedInstance(repository);
+        GamesHolder second = sharedInstance(repository);
+
+        String gameId = first.initGame("easy");
+        int moves = 0;
+        for (int row = 0; row < 4 && moves < 2; row++) {
+            for (int column = 0; column < 4 && moves < 2; column++) {
+                if (!expected.getLayout().hasBomb(row, column) && expected.getLayout().getBombsAround(row, column) > 0) {
+                    expected.check(row, column);
+                    (moves++ == 0 ? first : second).action(gameId, row, column);
+                }
+            }
+        }
+
+        assertEquals(2, moves);
+        assertEquals("First instance should see the move made on the second one", expected.getHiddenFields(), first.getGame(gameId).getHiddenFields());
+        assertEquals(expected.getHiddenFields(), second.getGame(gameId).getHiddenFields());
+
+        first.destroy();
+        second.destroy();
+    }
+
+    @Test
+    public void action_sharedCachedAfterWrite() throws IOException, InterruptedException, GameNotFoundException, GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(10, 4, 4, 3L);
+
+        Mockito.when(boardPool.take(Level.EASY)).thenReturn(board);
+        Mockito.doCallRealMethod().when(boardService).action(Mockito.any(Board.class), Mockito.anyInt(), Mockito.anyInt());
+
+        GameRepository repository = Mockito.spy(new InMemoryGameRepository());
+        GamesHolder instance = sharedInstance(repository);
+        String gameId = instance.initGame("easy");
+        int hidden = instance.getGame(gameId).getHiddenFields();
+
+        int[] hiddenWhileWritten = new int[1];
+        Mockito.doAnswer(invocation -> {
+            hiddenWhileWritten[0] = instance.getGame(gameId).getHiddenFields();
+            return invocation.callRealMethod();
+        }).when(repository).compareAndSet(Mockito.anyLong(), Mockito.anyLong(), Mockito.any(byte[].class));
+
+        int row = 0;
+        int column = 0;
+        while (board.getLayout().hasBomb(row, column) || board.getLayout().getBombsAround(row, column) == 0) {
+            column = (column + 1) % 4;
+            row += column == 0 ? 1 : 0;
+        }
+        instance.action(gameId, row, column);
+
+        assertEquals("Cached board should not show the move before it's written", hidden, hiddenWhileWritten[0]);
+        assertEquals(hidden - 1, instance.getGame(gameId).getHiddenFields());
+
+        instance.destroy();
+    }
+
+    private GamesHolder sharedInstance(final GameRepository repository) throws IOException {
+        GamesHolder instance = new GamesHolder();
+        ReflectionTestUtils.setField(instance, "boardService", boardService);
+        ReflectionTestUtils.setField(instance, "boardPool", boardPool);
+        ReflectionTestUtils.setField(instance, "gameJournal", gameJournal);
+        ReflectionTestUtils.setField(instance, "gameEvents", gameEvents);
+        ReflectionTestUtils.setField(instance, "gameStores", gameStores);
+        ReflectionTestUtils.setField(instance, "gameRepository", repository);
+        ReflectionTestUtils.setField(instance, "secondsAfterGameExpires", 600);
+        ReflectionTestUtils.setField(instance, "shardCount", 2);
+
+        instance.init();
+        return instance;
+    }
 }
@@ -0,0 +1,64 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import pl.hycom.service.InMemoryGameRepository;
+
+public class InMemoryGameRepositoryTest {
+
+    private final InMemoryGameRepository repository = new InMemoryGameRepository();
+
+    @Test
+    public void compareAndSet_onlyLatestVersion() {
+        byte[] state = { 1 };
+        assertTrue(repository.create(1L, state));
+        assertFalse(repository.create(1L, new byte[] { 2 }));
+        state[0] = 7;
+
+        assertArrayEquals("State should be copied", new byte[] { 1 }, repository.load(1L).getState());
+        assertTrue(repository.compareAndSet(1L, 1, new byte[] { 3 }));
+        assertFalse(repository.compareAndSet(1L, 1, new byte[] { 4 }));
+        assertEquals(2, repository.load(1L).getVersion());
+        assertArrayEquals(new byte[] { 3 }, repository.load(1L).getState());
+    }
+
+    @Test
+    public void removeIdle() throws InterruptedException {
+        repository.create(1L, new byte[] { 1 });
+        Thread.sleep(20);
+
+        assertEquals(0, repository.removeIdle(60_000));
+        assertEquals(1, repository.removeIdle(10));
+        assertNull(repository.load(1L));
+        assertFalse(repository.compareAndSet(1L, 1, new byte[] { 1 }));
+    }
+}
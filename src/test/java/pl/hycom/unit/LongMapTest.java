@@ -0,0 +1,108 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import pl.hycom.service.LongLongMap;
+import pl.hycom.service.LongMap;
+
+public class LongMapTest {
+
+    @Test
+    public void putGetRemove_likeHashMap() {
+        LongMap<Long> map = new LongMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(1);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 2_500;
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    public void remove_onlyExpectedValue() {
+        LongMap<String> map = new LongMap<>();
+        map.put(Long.MIN_VALUE, "a");
+
+        assertFalse(map.remove(Long.MIN_VALUE, "b"));
+        assertTrue(map.remove(Long.MIN_VALUE, "a"));
+        assertNull(map.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void putIfAbsent_replace_onlyExpectedValue() {
+        LongMap<String> map = new LongMap<>();
+
+        assertNull(map.putIfAbsent(7L, "a"));
+        assertEquals("a", map.putIfAbsent(7L, "b"));
+        assertFalse(map.replace(7L, "b", "c"));
+        assertTrue(map.replace(7L, map.get(7L), "c"));
+        assertFalse(map.replace(8L, null, "d"));
+        assertEquals("c", map.get(7L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void longLongMap_likeHashMap() {
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(2);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextLong() % 3_000;
+            if (random.nextBoolean()) {
+                Long previous = expected.put(key, (long) i);
+                assertEquals(previous == null ? LongLongMap.NO_VALUE : previous, map.put(key, i));
+            } else {
+                Long previous = expected.remove(key);
+                assertEquals(previous == null ? LongLongMap.NO_VALUE : previous, map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals((long) value, map.get(key)));
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.service.OffHeapGameStore;
+
+public class OffHeapGameStoreTest {
+
+    private final OffHeapGameStore store = new OffHeapGameStore();
+
+    @Test
+    public void get_afterUpdate() throws GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(10, 8, 8, 7L);
+        store.put(1L, board);
+
+        Board stored = store.get(1L);
+        stored.check(firstEmptyRow(stored), 0);
+        store.update(1L, stored);
+
+        Board updated = store.get(1L);
+        assertEquals(stored.getHiddenFields(), updated.getHiddenFields());
+        assertEquals(stored.prepareDTO(), updated.prepareDTO());
+        assertEquals(board.getSeed(), updated.getSeed());
+    }
+
+    @Test
+    public void remove_reusesSlot() throws GameConfigurationException {
+        store.put(1L, BoardFactory.createRandom(10, 8, 8, 1L));
+        long allocated = store.getAllocatedBytes();
+
+        store.remove(1L);
+        store.put(2L, BoardFactory.createRandom(10, 8, 8, 2L));
+
+        assertNull(store.get(1L));
+        assertEquals(1, store.size());
+        assertEquals(allocated, store.getAllocatedBytes());
+    }
+
+    @Test
+    public void put_largeBoard() throws GameConfigurationException {
+        Board board = BoardFactory.createRandom(100, 50, 40, 3L);
+        store.put(3L, board);
+        store.put(4L, BoardFactory.createRandom(10, 8, 8, 4L));
+
+        assertEquals(board.prepareDTO(), store.get(3L).prepareDTO());
+        assertEquals(8, store.get(4L).getRows());
+    }
+
+    @Test
+    public void get_viewOfSlot() throws GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(10, 8, 8, 5L);
+        store.put(1L, board);
+
+        Board view = store.get(1L);
+        int row = firstEmptyRow(view);
+        view.check(row, 0);
+
+        Board again = store.get(1L);
+        assertSame(board.getLayout(), again.getLayout());
+        assertTrue("Move should be written straight to the slot", again.prepareDTO().get(row).get(0).isDisabled());
+        assertEquals(0, again.getAllocatedBytes());
+    }
+
+    @Test
+    public void copy_readableAfterSlotReused() throws GameConfigurationException, ActionException {
+        Board expected = BoardFactory.createRandom(10, 8, 8, 6L);
+        store.put(1L, BoardFactory.createRandom(10, 8, 8, 6L));
+        Board view = store.get(1L);
+        view.check(firstEmptyRow(view), 0);
+        store.update(1L, view);
+        expected.check(firstEmptyRow(expected), 0);
+
+        Board copy = store.copy(1L);
+        store.remove(1L);
+        store.put(2L, BoardFactory.createRandom(10, 8, 8, 7L));
+
+        assertEquals(expected.getHiddenFields(), copy.getHiddenFields());
+        assertEquals(expected.prepareDTO(), copy.prepareDTO());
+        assertNull(store.copy(1L));
+    }
+
+    private static int firstEmptyRow(final Board board) {
+        for (int row = 0; row < board.getRows(); row++) {
+            if (!board.getLayout().hasBomb(row, 0)) {
+                return row;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2019 Hycom S.A.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package pl.hycom.unit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import pl.hycom.exception.ActionException;
+import pl.hycom.exception.GameConfigurationException;
+import pl.hycom.model.Board;
+import pl.hycom.model.Board.BoardFactory;
+import pl.hycom.service.RowFragmentCache;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RowFragmentCacheTest {
+
+    @Mock
+    private ITemplateEngine templateEngine;
+
+    @InjectMocks
+    private RowFragmentCache rowFragmentCache;
+
+    @Before
+    public void setUp() {
+        Mockito.when(templateEngine.process(Mockito.eq("boardRow"), Mockito.any(IContext.class)))
+                .thenAnswer(invocation -> "row " + ((IContext) invocation.getArgument(1)).getVariable("row"));
+    }
+
+    @Test
+    public void render_onlyChangedRows() throws GameConfigurationException, ActionException {
+        Board board = BoardFactory.createRandom(1, 4, 4, 7L);
+
+        List<String> rows = rowFragmentCache.render("123", board);
+        assertEquals(4, rows.size());
+        assertEquals("row 2", rows.get(2));
+        assertEquals(4, rowFragmentCache.stats().getRenderedRows());
+
+        rowFragmentCache.render("123", board);
+        assertEquals("Unchanged board should come from the cache", 4, rowFragmentCache.stats().getRenderedRows());
+        assertEquals(4, rowFragmentCache.stats().getCachedRows());
+
+        for (int i = 0; i < 16; i++) {
+            if (!board.getLayout().hasBomb(i / 4, i % 4) && board.getLayout().getBombsAround(i / 4, i % 4) > 0) {
+                board.check(i / 4, i % 4);
+                break;
+            }
+        }
+        rowFragmentCache.render("123", board);
+        assertEquals("Only the row with the opened field should be rendered again", 5, rowFragmentCache.stats().getRenderedRows());
+    }
+
+    @Test
+    public void render_leastRecentGameEvicted() throws GameConfigurationException {
+        ReflectionTestUtils.setField(rowFragmentCache, "cachedGames", 2);
+
+        for (String gameId : new String[] { "1", "2", "3" }) {
+            rowFragmentCache.render(gameId, BoardFactory.createRandom(1, 2, 2, 1L));
+        }
+        assertEquals(2, rowFragmentCache.stats().getGames());
+
+        rowFragmentCache.render("1", BoardFactory.createRandom(1, 2, 2, 1L));
+        assertEquals("Evicted game should be rendered again", 8, rowFragmentCache.stats().getRenderedRows());
+    }
+}
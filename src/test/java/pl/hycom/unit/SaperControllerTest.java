@@ -24,9 +24,13 @@
 package pl.hycom.unit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
 
 import org.junit.Before;
@@ -45,8 +49,8 @@ import pl.hycom.exception.BombException;
 import pl.hycom.exception.GameNotFoundException;
 import pl.hycom.model.Board;
 import pl.hycom.model.Board.BoardFactory;
-import pl.hycom.service.BoardService;
 import pl.hycom.service.GamesHolder;
+import pl.hycom.service.RowFragmentCache;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SaperControllerTest {
@@ -55,7 +59,7 @@ public class SaperControllerTest {
     private GamesHolder gamesHolder;
 
     @Mock
-    private BoardService boardService;
+    private RowFragmentCache rowFragmentCache;
 
     @InjectMocks
     private SaperController saperController;
@@ -82,9 +86,51 @@ public class SaperControllerTest {
         assertEquals("GameId should be [" + gameId + "]", mockHttpSession.getAttribute(SaperController.ATTR_GAME_ID), gameId);
     }
 
+    @Test
+    public void get_game_notModified() throws Exception {
+        Board board = BoardFactory.createRandom(1, 3, 3, 1L);
+        Mockito.when(gamesHolder.getGame("123")).thenReturn(board);
+
+        MvcResult result = mockMvc.perform(get("/game").param(SaperController.ATTR_GAME_ID, "123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn();
+        String etag = result.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/game").param(SaperController.ATTR_GAME_ID, "123").header("If-None-Match", etag)).andExpect(status().isNotModified());
+        Mockito.verify(rowFragmentCache, Mockito.times(1)).render("123", board);
+    }
+
+    @Test
+    public void get_game_modifiedByMove() throws Exception {
+        Board moved = BoardFactory.createRandom(1, 3, 3, 1L);
+        Mockito.when(gamesHolder.getGame("123")).thenReturn(moved);
+
+        String etag = mockMvc.perform(get("/game").param(SaperController.ATTR_GAME_ID, "123")).andReturn().getResponse().getHeader("ETag");
+        for (int i = 0; i < 9; i++) {
+            if (!moved.getLayout().hasBomb(i / 3, i % 3) && moved.getLayout().getBombsAround(i / 3, i % 3) > 0) {
+                moved.check(i / 3, i % 3);
+                break;
+            }
+        }
+
+        MvcResult result = mockMvc.perform(get("/game").param(SaperController.ATTR_GAME_ID, "123").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(etag, result.getResponse().getHeader("ETag"));
+        assertEquals("index", result.getModelAndView().getViewName());
+    }
+
+    @Test
+    public void get_game_noGame() throws Exception {
+        MvcResult result = mockMvc.perform(get("/game").session(new MockHttpSession())).andReturn();
+
+        assertEquals("gameOver", result.getModelAndView().getViewName());
+    }
+
     @Test
     public void post_saper_ok() throws Exception {
-        Mockito.when(gamesHolder.getGame(any())).thenReturn(BoardFactory.createEmpty());
+        Mockito.when(gamesHolder.action(any(), anyInt(), anyInt())).thenReturn(BoardFactory.createEmpty());
 
         MockHttpSession mockHttpSession = new MockHttpSession();
         mockHttpSession.putValue(SaperController.ATTR_GAME_ID, "123");
@@ -99,7 +145,7 @@ public class SaperControllerTest {
         Board board = BoardFactory.createRandom(0, 1);
         board.check(0, 0);
 
-        Mockito.when(gamesHolder.getGame(any())).thenReturn(board);
+        Mockito.when(gamesHolder.action(any(), anyInt(), anyInt())).thenReturn(board);
 
         MockHttpSession mockHttpSession = new MockHttpSession();
         mockHttpSession.putValue(SaperController.ATTR_GAME_ID, "123");
@@ -110,11 +156,22 @@ public class SaperControllerTest {
     }
 
     @Test
-    public void post_saper_bomb() throws Exception {
-        Board board = BoardFactory.createEmpty();
+    public void post_saper_gameIdFromForm() throws Exception {
+        Mockito.when(gamesHolder.action("456", 1, 1)).thenReturn(BoardFactory.createEmpty());
 
-        Mockito.when(gamesHolder.getGame(any())).thenReturn(board);
-        Mockito.doThrow(new BombException("test")).when(boardService).action(board, 1, 1);
+        MockHttpSession mockHttpSession = new MockHttpSession();
+        mockHttpSession.putValue(SaperController.ATTR_GAME_ID, "123");
+
+        MvcResult result = mockMvc.perform(post("/saper").session(mockHttpSession).param("action", "1:1").param(SaperController.ATTR_GAME_ID, "456"))
+                .andReturn();
+
+        assertEquals("Board screen should be presented", result.getModelAndView().getViewName(), "index");
+        assertEquals("456", result.getModelAndView().getModel().get(SaperController.ATTR_GAME_ID));
+    }
+
+    @Test
+    public void post_saper_bomb() throws Exception {
+        Mockito.when(gamesHolder.action("123", 1, 1)).thenThrow(new BombException("test"));
 
         MockHttpSession mockHttpSession = new MockHttpSession();
         mockHttpSession.putValue(SaperController.ATTR_GAME_ID, "123");
@@ -126,8 +183,6 @@ public class SaperControllerTest {
 
     @Test
     public void post_saper_action_null() throws Exception {
-        Mockito.when(gamesHolder.getGame(any())).thenReturn(BoardFactory.createEmpty());
-
         MockHttpSession mockHttpSession = new MockHttpSession();
         mockHttpSession.putValue(SaperController.ATTR_GAME_ID, "123");
 
@@ -138,8 +193,6 @@ public class SaperControllerTest {
 
     @Test
     public void post_saper_action_wrong_string() throws Exception {
-        Mockito.when(gamesHolder.getGame(any())).thenReturn(BoardFactory.createEmpty());
-
         MockHttpSession mockHttpSession = new MockHttpSession();
         mockHttpSession.putValue(SaperController.ATTR_GAME_ID, "123");
 
@@ -151,7 +204,7 @@ public class SaperControllerTest {
     @Test
     public void post_saper_no_game() throws Exception {
 
-        Mockito.when(gamesHolder.getGame(any())).thenThrow(new GameNotFoundException("test"));
+        Mockito.when(gamesHolder.action(any(), anyInt(), anyInt())).thenThrow(new GameNotFoundException("test"));
 
         MockHttpSession mockHttpSession = new MockHttpSession();
         mockHttpSession.putValue(SaperController.ATTR_GAME_ID, "123");